@@ -0,0 +1,221 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.EnumSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.jslib.util.Strings;
+
+/**
+ * Output stream that replaces target file atomically. Bytes are written to a temporary sibling of the target file and
+ * only {@link #commit()} forces them to storage and renames temporary file over the target; readers, and a crash, see
+ * either old or new content, never a partially written file. Closing stream without commit discards written bytes.
+ * Replaced target file keeps its POSIX permissions and, if process has the rights, its owner and group.
+ * <p>
+ * Stream created by a {@link WriteBatch} does not force and rename on commit; these are deferred till batch commit.
+ */
+public class AtomicOutputStream extends OutputStream
+{
+  private final FilesUtil files;
+  private final Path targetFile;
+  private final Path tempFile;
+  private final WriteBatch batch;
+
+  private FileChannel channel;
+  private final ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+  private boolean committed;
+
+  AtomicOutputStream(FilesUtil files, Path targetFile, WriteBatch batch) throws IOException
+  {
+    this.files = files;
+    this.targetFile = targetFile;
+    this.tempFile = targetFile.resolveSibling(Strings.format(".%s.%x.tmp", targetFile.getFileName(), ThreadLocalRandom.current().nextLong()));
+    this.batch = batch;
+
+    files.createDirectory(targetFile.getParent());
+    this.channel = files.getFileSystem().provider().newFileChannel(tempFile, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+  }
+
+  public Path getTargetFile()
+  {
+    return targetFile;
+  }
+
+  Path getTempFile()
+  {
+    return tempFile;
+  }
+
+  @Override
+  public void write(int b) throws IOException
+  {
+    ensureOpen();
+    if(!buffer.hasRemaining()) {
+      drain();
+    }
+    buffer.put((byte)b);
+  }
+
+  @Override
+  public void write(byte[] bytes, int offset, int length) throws IOException
+  {
+    ensureOpen();
+    if(length > buffer.remaining()) {
+      drain();
+    }
+    if(length >= buffer.capacity()) {
+      write(ByteBuffer.wrap(bytes, offset, length));
+      return;
+    }
+    buffer.put(bytes, offset, length);
+  }
+
+  @Override
+  public void flush() throws IOException
+  {
+    // writers flush wrapped stream on close, that is, after commit
+    if(channel != null) {
+      drain();
+    }
+  }
+
+  /**
+   * Make written bytes visible at target file path. If this stream is not part of a write batch, bytes are forced to
+   * storage and temporary file is renamed over target file; otherwise temporary file is closed and handed over to batch.
+   * Stream is closed after commit.
+   *
+   * @throws IOException if write, force or rename fails; temporary file is removed and target file is left untouched.
+   */
+  public void commit() throws IOException
+  {
+    ensureOpen();
+    try {
+      drain();
+      copyTargetAttributes();
+      if(batch == null) {
+        channel.force(true);
+      }
+      channel.close();
+      channel = null;
+      if(batch == null) {
+        rename();
+        fsyncDirectory(files, targetFile.toAbsolutePath().getParent());
+      }
+      else {
+        batch.add(this);
+      }
+      committed = true;
+    }
+    finally {
+      if(!committed) {
+        close();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(channel != null) {
+      try {
+        channel.close();
+      }
+      finally {
+        channel = null;
+      }
+    }
+    if(!committed) {
+      files.getFileSystem().provider().deleteIfExists(tempFile);
+    }
+  }
+
+  /** Copy POSIX attributes of existing target file to temporary file, before it is forced, so that they are durable too. */
+  private void copyTargetAttributes() throws IOException
+  {
+    FileSystemProvider provider = files.getFileSystem().provider();
+    PosixFileAttributeView targetView = provider.getFileAttributeView(targetFile, PosixFileAttributeView.class);
+    if(targetView == null) {
+      // POSIX attributes not supported, e.g. on Windows
+      return;
+    }
+    PosixFileAttributes attributes;
+    try {
+      attributes = targetView.readAttributes();
+    }
+    catch(NoSuchFileException unused) {
+      return;
+    }
+
+    PosixFileAttributeView tempView = provider.getFileAttributeView(tempFile, PosixFileAttributeView.class);
+    tempView.setPermissions(attributes.permissions());
+    PosixFileAttributes tempAttributes = tempView.readAttributes();
+    try {
+      if(!attributes.group().equals(tempAttributes.group())) {
+        tempView.setGroup(attributes.group());
+      }
+      if(!attributes.owner().equals(tempAttributes.owner())) {
+        tempView.setOwner(attributes.owner());
+      }
+    }
+    catch(FileSystemException unused) {
+      // changing owner, or group to one process is not member of, requires privileges; keep process owner and group
+    }
+  }
+
+  void rename() throws IOException
+  {
+    try {
+      files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(AtomicMoveNotSupportedException unused) {
+      files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private void ensureOpen() throws IOException
+  {
+    if(channel == null) {
+      throw new IOException("Atomic output stream closed: " + targetFile);
+    }
+  }
+
+  private void drain() throws IOException
+  {
+    buffer.flip();
+    write(buffer);
+    buffer.clear();
+  }
+
+  private void write(ByteBuffer bytes) throws IOException
+  {
+    while(bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /**
+   * Force directory entry changes, e.g. a rename, to storage. Not all platforms and file systems support opening a
+   * directory for sync; in that case this method silently does nothing.
+   */
+  static void fsyncDirectory(FilesUtil files, Path dir)
+  {
+    try (FileChannel dirChannel = files.getFileSystem().provider().newFileChannel(dir, EnumSet.of(StandardOpenOption.READ))) {
+      dirChannel.force(true);
+    }
+    catch(IOException | UnsupportedOperationException unused) {
+      // directory sync not supported, e.g. on Windows
+    }
+  }
+}
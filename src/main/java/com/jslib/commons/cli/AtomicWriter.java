@@ -0,0 +1,26 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 writer on top of an {@link AtomicOutputStream}. As with the underlying stream, written text reaches target file
+ * only on {@link #commit()}; closing writer without commit discards it.
+ */
+public class AtomicWriter extends OutputStreamWriter
+{
+  private final AtomicOutputStream stream;
+
+  AtomicWriter(AtomicOutputStream stream)
+  {
+    super(stream, StandardCharsets.UTF_8);
+    this.stream = stream;
+  }
+
+  public void commit() throws IOException
+  {
+    flush();
+    stream.commit();
+  }
+}
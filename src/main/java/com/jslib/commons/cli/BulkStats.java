@@ -0,0 +1,78 @@
+package com.jslib.commons.cli;
+
+/**
+ * Progress sample, or final statistics, of a bulk files operation reported by {@link ProgressMeter}. Rates are for the
+ * interval since previous sample while operation is running and average for the entire operation on final statistics.
+ * Remaining time is estimated from expected totals set on progress meter or, failing that, from files discovered by
+ * operations that list directories ahead of processing, in which case it is a lower bound.
+ */
+public class BulkStats
+{
+  private final long filesCount;
+  private final long bytesCount;
+  private final long elapsedMillis;
+  private final double filesRate;
+  private final double bytesRate;
+  private final long remainingMillis;
+  private final boolean complete;
+
+  BulkStats(long filesCount, long bytesCount, long elapsedMillis, double filesRate, double bytesRate, long remainingMillis, boolean complete)
+  {
+    this.filesCount = filesCount;
+    this.bytesCount = bytesCount;
+    this.elapsedMillis = elapsedMillis;
+    this.filesRate = filesRate;
+    this.bytesRate = bytesRate;
+    this.remainingMillis = remainingMillis;
+    this.complete = complete;
+  }
+
+  public long getFilesCount()
+  {
+    return filesCount;
+  }
+
+  public long getBytesCount()
+  {
+    return bytesCount;
+  }
+
+  public long getElapsedMillis()
+  {
+    return elapsedMillis;
+  }
+
+  /** Processed files per second. */
+  public double getFilesRate()
+  {
+    return filesRate;
+  }
+
+  /** Processed bytes per second. */
+  public double getBytesRate()
+  {
+    return bytesRate;
+  }
+
+  /**
+   * Get estimated time till operation completes, in milliseconds, or -1 if neither expected nor discovered totals are
+   * known.
+   *
+   * @return estimated remaining time, possible -1.
+   */
+  public long getRemainingMillis()
+  {
+    return remainingMillis;
+  }
+
+  public boolean isComplete()
+  {
+    return complete;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "BulkStats [filesCount=" + filesCount + ", bytesCount=" + bytesCount + ", elapsedMillis=" + elapsedMillis + ", filesRate=" + filesRate + ", bytesRate=" + bytesRate + ", remainingMillis=" + remainingMillis + ", complete=" + complete + "]";
+  }
+}
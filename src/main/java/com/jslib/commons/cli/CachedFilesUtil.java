@@ -0,0 +1,512 @@
+package com.jslib.commons.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Files utility that memoizes file existence, file type and directory listings. Intended for long running task sessions
+ * that check the same paths over and over, e.g. {@link #createDirectories(Path)} checking every ancestor.
+ * <p>
+ * Cache is kept consistent with changes performed through this utility instance. For changes performed by other
+ * processes there is optional {@link WatchService} support - enabled from constructor, that invalidates cached entries
+ * when watched directories change; note that watch events are asynchronous so there is a short window when cache can be
+ * stale. If file system does not support watching, or for immediate consistency, use {@link #invalidate(Path)} and
+ * {@link #invalidateAll()}.
+ */
+public class CachedFilesUtil extends FilesUtil implements Closeable
+{
+  private enum Stat
+  {
+    MISSING, FILE, DIRECTORY
+  }
+
+  /** Sorted by path so that a subtree is a contiguous range, see {@link #invalidateTree(Path)}. */
+  private final ConcurrentNavigableMap<Path, Stat> stats = new ConcurrentSkipListMap<>();
+  private final ConcurrentNavigableMap<Path, List<Path>> listings = new ConcurrentSkipListMap<>();
+  /** Incremented before every invalidation, so that a cache miss can detect invalidation racing with its file access. */
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  private final WatchService watchService;
+  private final Set<Path> watchedDirs = Collections.newSetFromMap(new ConcurrentHashMap<>());
+  /** Watched directory per watch key; key watchable is not used since it is unwrapped if file system is a wrapper. */
+  private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+  private final Thread watchThread;
+
+  public CachedFilesUtil(FileSystem fileSystem, IConsole console, boolean watch)
+  {
+    super(fileSystem, console);
+
+    WatchService watchService = null;
+    if(watch) {
+      try {
+        watchService = fileSystem.newWatchService();
+      }
+      catch(IOException | UnsupportedOperationException unused) {
+        // file system does not support watching; rely on explicit invalidation
+      }
+    }
+    this.watchService = watchService;
+
+    if(watchService != null) {
+      this.watchThread = new Thread(this::watch, "files-cache-watch");
+      this.watchThread.setDaemon(true);
+      this.watchThread.start();
+    }
+    else {
+      this.watchThread = null;
+    }
+  }
+
+  public long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+  public long getMissCount()
+  {
+    return missCount.get();
+  }
+
+  public void invalidate(Path path)
+  {
+    generation.incrementAndGet();
+    stats.remove(path);
+    listings.remove(path);
+    Path parent = path.getParent();
+    if(parent != null) {
+      listings.remove(parent);
+    }
+  }
+
+  public void invalidateTree(Path root)
+  {
+    generation.incrementAndGet();
+    removeTree(stats, root);
+    removeTree(listings, root);
+    invalidate(root);
+  }
+
+  /**
+   * Remove root and its descendants from map. Paths starting with root path string are a contiguous range on path order,
+   * so only that range is scanned; it may include siblings sharing name prefix, e.g. <code>dir.txt</code> for
+   * <code>dir</code>, that are skipped.
+   */
+  private static void removeTree(ConcurrentNavigableMap<Path, ?> map, Path root)
+  {
+    String rootPath = root.toString();
+    Iterator<Path> paths = map.tailMap(root, true).keySet().iterator();
+    while(paths.hasNext()) {
+      Path path = paths.next();
+      if(path.startsWith(root)) {
+        paths.remove();
+        continue;
+      }
+      if(!path.toString().startsWith(rootPath)) {
+        break;
+      }
+    }
+  }
+
+  public void invalidateAll()
+  {
+    generation.incrementAndGet();
+    stats.clear();
+    listings.clear();
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    if(watchService != null) {
+      watchService.close();
+      watchThread.interrupt();
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+  // cached queries
+
+  @Override
+  public boolean exists(Path file)
+  {
+    return stat(file) != Stat.MISSING;
+  }
+
+  @Override
+  public boolean isDirectory(Path path)
+  {
+    return stat(path) == Stat.DIRECTORY;
+  }
+
+  @Override
+  public Iterable<Path> listFiles(Path dir, DirectoryStream.Filter<Path> filter) throws IOException
+  {
+    List<Path> files = listings.get(dir);
+    if(files != null) {
+      hitCount.incrementAndGet();
+    }
+    else {
+      missCount.incrementAndGet();
+      watch(dir);
+      long missGeneration = generation.get();
+      files = new ArrayList<>();
+      try (DirectoryStream<Path> directoryStream = getFileSystem().provider().newDirectoryStream(dir, path -> true)) {
+        for(Path file : directoryStream) {
+          files.add(file);
+        }
+      }
+      catch(DirectoryIteratorException e) {
+        throw e.getCause();
+      }
+      files = Collections.unmodifiableList(files);
+      cache(listings, dir, files, missGeneration);
+    }
+
+    List<Path> filteredFiles = new ArrayList<>();
+    for(Path file : files) {
+      if(filter.accept(file)) {
+        filteredFiles.add(file);
+      }
+    }
+    return filteredFiles;
+  }
+
+  private Stat stat(Path path)
+  {
+    Stat stat = stats.get(path);
+    if(stat != null) {
+      hitCount.incrementAndGet();
+      return stat;
+    }
+
+    missCount.incrementAndGet();
+    Path parent = path.getParent();
+    if(parent != null) {
+      watch(parent);
+    }
+    long missGeneration = generation.get();
+    try {
+      BasicFileAttributes attributes = getFileSystem().provider().readAttributes(path, BasicFileAttributes.class);
+      stat = attributes.isDirectory() ? Stat.DIRECTORY : Stat.FILE;
+    }
+    catch(NoSuchFileException unused) {
+      stat = Stat.MISSING;
+    }
+    catch(IOException unused) {
+      // do not cache other errors, e.g. access denied, since they are not necessarily persistent
+      return Stat.MISSING;
+    }
+    cache(stats, path, stat, missGeneration);
+    return stat;
+  }
+
+  /**
+   * Cache value read from file system, unless an invalidation happened since reading started. Value is put before
+   * generation check and removed if check fails, so that an invalidation racing with the put cannot be missed.
+   */
+  private <V> void cache(Map<Path, V> map, Path path, V value, long missGeneration)
+  {
+    map.put(path, value);
+    if(generation.get() != missGeneration) {
+      map.remove(path, value);
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+  // changes invalidate affected cache entries
+
+  @Override
+  public void createDirectory(Path dir) throws IOException
+  {
+    try {
+      super.createDirectory(dir);
+    }
+    finally {
+      invalidate(dir);
+    }
+  }
+
+  @Override
+  public BulkStats cleanDirectory(Path rootDir, boolean verbose, PathMatcher excludes, ProgressMeter meter) throws IOException
+  {
+    try {
+      return super.cleanDirectory(rootDir, verbose, excludes, meter);
+    }
+    finally {
+      invalidateTree(rootDir);
+    }
+  }
+
+  @Override
+  public BulkStats cleanDirectory(Path rootDir, boolean verbose, int parallelism, PathMatcher excludes, ProgressMeter meter) throws IOException
+  {
+    try {
+      return super.cleanDirectory(rootDir, verbose, parallelism, excludes, meter);
+    }
+    finally {
+      invalidateTree(rootDir);
+    }
+  }
+
+  @Override
+  public Future<Void> cleanDirectoryDeferred(Path rootDir, int parallelism, PathMatcher excludes) throws IOException
+  {
+    try {
+      return super.cleanDirectoryDeferred(rootDir, parallelism, excludes);
+    }
+    finally {
+      invalidateTree(rootDir);
+    }
+  }
+
+  @Override
+  public void delete(Path path) throws IOException
+  {
+    try {
+      super.delete(path);
+    }
+    finally {
+      invalidateTree(path);
+    }
+  }
+
+  @Override
+  public void deleteIfExists(Path path) throws IOException
+  {
+    try {
+      super.deleteIfExists(path);
+    }
+    finally {
+      if(path != null) {
+        invalidateTree(path);
+      }
+    }
+  }
+
+  @Override
+  public void move(Path source, Path target) throws IOException
+  {
+    try {
+      super.move(source, target);
+    }
+    finally {
+      invalidateTree(source);
+      invalidateTree(target);
+    }
+  }
+
+  @Override
+  public void move(Path source, Path target, CopyOption... options) throws IOException
+  {
+    try {
+      super.move(source, target, options);
+    }
+    finally {
+      invalidateTree(source);
+      invalidateTree(target);
+    }
+  }
+
+  @Override
+  public Writer getWriter(Path file) throws IOException
+  {
+    try {
+      return super.getWriter(file);
+    }
+    finally {
+      invalidate(file);
+    }
+  }
+
+  @Override
+  public OutputStream getOutputStream(Path file) throws IOException
+  {
+    try {
+      return super.getOutputStream(file);
+    }
+    finally {
+      invalidate(file);
+    }
+  }
+
+  @Override
+  public void copy(Path sourceFile, Path targetFile) throws IOException
+  {
+    try {
+      super.copy(sourceFile, targetFile);
+    }
+    finally {
+      invalidate(targetFile);
+    }
+  }
+
+  @Override
+  public void copyText(Path sourceFile, Charset sourceCharset, Path targetFile, Charset targetCharset) throws IOException
+  {
+    try {
+      super.copyText(sourceFile, sourceCharset, targetFile, targetCharset);
+    }
+    finally {
+      invalidate(targetFile);
+    }
+  }
+
+  @Override
+  public void copy(String source, Path targetFile) throws IOException
+  {
+    try {
+      super.copy(source, targetFile);
+    }
+    finally {
+      invalidate(targetFile);
+    }
+  }
+
+  @Override
+  public void copy(InputStream inputStream, Path targetFile) throws IOException
+  {
+    try {
+      super.copy(inputStream, targetFile);
+    }
+    finally {
+      invalidate(targetFile);
+    }
+  }
+
+  @Override
+  public BulkStats copyFiles(Path sourceDir, Path targetDir, boolean verbose, CopyStrategy strategy, ProgressMeter meter) throws IOException
+  {
+    try {
+      return super.copyFiles(sourceDir, targetDir, verbose, strategy, meter);
+    }
+    finally {
+      invalidateTree(targetDir);
+    }
+  }
+
+  @Override
+  public BulkStats copyFiles(Path sourceDir, Path targetDir, boolean verbose, int parallelism, CopyStrategy strategy, ProgressMeter meter) throws IOException
+  {
+    try {
+      return super.copyFiles(sourceDir, targetDir, verbose, parallelism, strategy, meter);
+    }
+    finally {
+      invalidateTree(targetDir);
+    }
+  }
+
+  @Override
+  public void zip(Path sourceDir, Path zipFile, int parallelism) throws IOException
+  {
+    try {
+      super.zip(sourceDir, zipFile, parallelism);
+    }
+    finally {
+      invalidate(zipFile);
+    }
+  }
+
+  @Override
+  public void unzip(Path zipFile, Path targetDir, int parallelism) throws IOException
+  {
+    try {
+      super.unzip(zipFile, targetDir, parallelism);
+    }
+    finally {
+      invalidateTree(targetDir);
+    }
+  }
+
+  @Override
+  public SyncResult syncFiles(Path sourceDir, Path targetDir, boolean checksum, boolean deleteOrphans, boolean verbose) throws IOException
+  {
+    try {
+      return super.syncFiles(sourceDir, targetDir, checksum, deleteOrphans, verbose);
+    }
+    finally {
+      invalidateTree(targetDir);
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+  // watch service
+
+  private void watch(Path dir)
+  {
+    if(watchService == null || !watchedDirs.add(dir)) {
+      return;
+    }
+    try {
+      watchKeys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE), dir);
+    }
+    catch(IOException | UnsupportedOperationException | ClosedWatchServiceException unused) {
+      // directory cannot be watched, e.g. it does not exist yet; allow retry on next cache miss
+      watchedDirs.remove(dir);
+    }
+  }
+
+  private void watch()
+  {
+    for(;;) {
+      WatchKey key;
+      try {
+        key = watchService.take();
+      }
+      catch(InterruptedException | ClosedWatchServiceException unused) {
+        return;
+      }
+
+      Path dir = watchKeys.get(key);
+      if(dir == null) {
+        // event raced with key registration; directory is not known yet so drop the whole cache
+        key.pollEvents();
+        key.reset();
+        invalidateAll();
+        continue;
+      }
+      for(WatchEvent<?> event : key.pollEvents()) {
+        if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          invalidateAll();
+          continue;
+        }
+        invalidateTree(dir.resolve((Path)event.context()));
+      }
+      if(!key.reset()) {
+        // directory is no longer accessible
+        watchKeys.remove(key);
+        watchedDirs.remove(dir);
+        invalidateTree(dir);
+      }
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.jslib.commons.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent trigram index used to narrow candidate files for content pattern search. For every indexed file keeps the
+ * sorted set of byte trigrams present into file content, together with file size and modification time. A file can
+ * contain a pattern only if it contains all pattern trigrams; files passing this filter are still scanned for real
+ * pattern match, so the index never produces false positives.
+ * <p>
+ * Index is updated incrementally on every search: files with changed size or modification time are reindexed, new files
+ * are added and missing ones removed. Missing, corrupt or foreign index file is silently discarded and index rebuilt.
+ * Files modified too close to indexing moment are considered racy and reindexed until their modification time is safely
+ * in the past, since a change on the same file system clock tick would go unnoticed.
+ */
+public class ContentIndex
+{
+  private static final int MAGIC = 0x4A534349;
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Files with more distinct trigrams are not indexed - most probably binary, and are always scanned. */
+  private static final int MAX_TRIGRAMS = 1 << 20;
+  /** Maximum file system time stamp resolution, in milliseconds. */
+  private static final long RACY_INTERVAL = 2000;
+  /** Minimum size of a serialized entry: empty key length, size, modification and indexing time, trigrams count. */
+  private static final int MIN_ENTRY_SIZE = 2 + 3 * 8 + 4;
+
+  private final FilesUtil files;
+  private final Path rootDir;
+  private final Path indexFile;
+
+  private final Map<String, Entry> entries = new HashMap<>();
+  private final BitSet trigramsSet = new BitSet(1 << 24);
+  private boolean dirty;
+
+  public ContentIndex(FilesUtil files, Path rootDir, Path indexFile)
+  {
+    this.files = files;
+    this.rootDir = rootDir;
+    this.indexFile = indexFile;
+  }
+
+  public void load()
+  {
+    entries.clear();
+    dirty = false;
+    if(!files.exists(indexFile)) {
+      return;
+    }
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(files.getInputStream(indexFile)))) {
+      if(inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION || !rootDir.toString().equals(inputStream.readUTF())) {
+        return;
+      }
+      // counts read from disk are checked before allocating; a corrupt count is not allowed to exhaust memory
+      long fileSize = files.getFileSystem().provider().readAttributes(indexFile, BasicFileAttributes.class).size();
+      int count = inputStream.readInt();
+      if(count < 0 || count > fileSize / MIN_ENTRY_SIZE) {
+        throw new IOException("Corrupt entries count.");
+      }
+      for(int i = 0; i < count; ++i) {
+        String key = inputStream.readUTF();
+        Entry entry = new Entry(inputStream.readLong(), inputStream.readLong(), inputStream.readLong());
+        int trigramsCount = inputStream.readInt();
+        if(trigramsCount < -1 || trigramsCount > MAX_TRIGRAMS || trigramsCount > fileSize) {
+          throw new IOException("Corrupt trigrams count.");
+        }
+        if(trigramsCount >= 0) {
+          entry.trigrams = new int[trigramsCount];
+          int trigram = -1;
+          for(int j = 0; j < trigramsCount; ++j) {
+            int delta = VarInt.readInt(inputStream);
+            // first delta is the trigram itself and can be zero; trigrams should be strictly ascending for binary search
+            if(j > 0 ? delta <= 0 : delta < 0) {
+              throw new IOException("Corrupt trigrams order.");
+            }
+            trigram = j > 0 ? trigram + delta : delta;
+            if(trigram > 0xFFFFFF) {
+              throw new IOException("Corrupt trigram value.");
+            }
+            entry.trigrams[j] = trigram;
+          }
+        }
+        entries.put(key, entry);
+      }
+    }
+    catch(IOException | RuntimeException unused) {
+      // index is only an optimization; on corrupt index file start from scratch
+      entries.clear();
+      dirty = true;
+    }
+  }
+
+  public void save() throws IOException
+  {
+    if(!dirty) {
+      return;
+    }
+    files.createDirectories(indexFile.getParent());
+    Path workingFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+    try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(files.getOutputStream(workingFile)))) {
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(VERSION);
+      outputStream.writeUTF(rootDir.toString());
+      outputStream.writeInt(entries.size());
+      for(Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        outputStream.writeUTF(mapEntry.getKey());
+        outputStream.writeLong(entry.size);
+        outputStream.writeLong(entry.modificationTime);
+        outputStream.writeLong(entry.indexingTime);
+        if(entry.trigrams == null) {
+          outputStream.writeInt(-1);
+          continue;
+        }
+        outputStream.writeInt(entry.trigrams.length);
+        int previousTrigram = 0;
+        for(int trigram : entry.trigrams) {
+          VarInt.write(outputStream, trigram - previousTrigram);
+          previousTrigram = trigram;
+        }
+      }
+    }
+    files.move(workingFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+    dirty = false;
+  }
+
+  public List<Path> find(String extension, String pattern) throws IOException
+  {
+    ContentMatcher matcher = new ContentMatcher(pattern);
+    int[] patternTrigrams = trigrams(pattern.getBytes(StandardCharsets.UTF_8));
+    Set<String> visitedKeys = new HashSet<>();
+    List<Path> foundFiles = new ArrayList<>();
+
+    files.walkFileTree(rootDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        if(file.equals(indexFile)) {
+          return FileVisitResult.CONTINUE;
+        }
+        // every existing file is recorded, so that entries indexed for other extensions survive
+        String key = rootDir.relativize(file).toString();
+        visitedKeys.add(key);
+        if(!files.hasExtension(file, extension)) {
+          return FileVisitResult.CONTINUE;
+        }
+
+        Entry entry = entries.get(key);
+        if(entry == null || !entry.isValid(attrs)) {
+          entry = createEntry(file, attrs);
+          entries.put(key, entry);
+          dirty = true;
+        }
+        if(entry.containsAll(patternTrigrams) && files.hasContentPattern(file, matcher)) {
+          foundFiles.add(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    // prune entries for deleted files, whatever their extension, including files from deleted directories
+    Iterator<String> keys = entries.keySet().iterator();
+    while(keys.hasNext()) {
+      String key = keys.next();
+      if(!visitedKeys.contains(key)) {
+        keys.remove();
+        dirty = true;
+      }
+    }
+
+    Collections.sort(foundFiles);
+    return foundFiles;
+  }
+
+  private Entry createEntry(Path file, BasicFileAttributes attrs) throws IOException
+  {
+    Entry entry = new Entry(attrs.size(), attrs.lastModifiedTime().toMillis(), System.currentTimeMillis());
+
+    trigramsSet.clear();
+    int cardinality = 0;
+    try (InputStream inputStream = files.getInputStream(file)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int trigram = 0;
+      int prefixLength = 0;
+      int length;
+      while((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
+        for(int i = 0; i < length; ++i) {
+          trigram = ((trigram << 8) | (buffer[i] & 0xFF)) & 0xFFFFFF;
+          if(prefixLength < 2) {
+            ++prefixLength;
+            continue;
+          }
+          if(trigramsSet.get(trigram)) {
+            continue;
+          }
+          trigramsSet.set(trigram);
+          if(++cardinality > MAX_TRIGRAMS) {
+            return entry;
+          }
+        }
+      }
+    }
+
+    entry.trigrams = new int[cardinality];
+    int index = 0;
+    for(int trigram = trigramsSet.nextSetBit(0); trigram >= 0; trigram = trigramsSet.nextSetBit(trigram + 1)) {
+      entry.trigrams[index++] = trigram;
+    }
+    return entry;
+  }
+
+  private static int[] trigrams(byte[] bytes)
+  {
+    Set<Integer> trigrams = new HashSet<>();
+    for(int i = 2; i < bytes.length; ++i) {
+      trigrams.add(((bytes[i - 2] & 0xFF) << 16) | ((bytes[i - 1] & 0xFF) << 8) | (bytes[i] & 0xFF));
+    }
+    int[] array = new int[trigrams.size()];
+    int index = 0;
+    for(int trigram : trigrams) {
+      array[index++] = trigram;
+    }
+    return array;
+  }
+
+  private static class Entry
+  {
+    final long size;
+    final long modificationTime;
+    final long indexingTime;
+    /** Sorted file content trigrams or null if file was not indexed. */
+    int[] trigrams;
+
+    Entry(long size, long modificationTime, long indexingTime)
+    {
+      this.size = size;
+      this.modificationTime = modificationTime;
+      this.indexingTime = indexingTime;
+    }
+
+    boolean isValid(BasicFileAttributes attrs)
+    {
+      if(size != attrs.size() || modificationTime != attrs.lastModifiedTime().toMillis()) {
+        return false;
+      }
+      return indexingTime - modificationTime > RACY_INTERVAL;
+    }
+
+    boolean containsAll(int[] patternTrigrams)
+    {
+      if(trigrams == null) {
+        return true;
+      }
+      for(int trigram : patternTrigrams) {
+        if(Arrays.binarySearch(trigrams, trigram) < 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
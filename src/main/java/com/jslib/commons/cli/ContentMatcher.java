@@ -0,0 +1,117 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming search for a literal pattern into file content. Pattern is encoded UTF-8 and searched at byte level, using
+ * Boyer-Moore-Horspool skip table, so that content is never decoded nor loaded whole into memory. Content is scanned in
+ * chunks - or memory mapped windows for large files, and scanning stops on first match. Consecutive chunks overlap with
+ * pattern length minus one bytes so that matches crossing chunks boundary are not missed.
+ */
+class ContentMatcher
+{
+  private static final int CHUNK_SIZE = 64 * 1024;
+  private static final long MAP_THRESHOLD = 1024 * 1024;
+  private static final long MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final byte[] pattern;
+  private final int[] shifts;
+  private final int chunkSize;
+
+  public ContentMatcher(String pattern)
+  {
+    this(pattern, CHUNK_SIZE);
+  }
+
+  /**
+   * Test constructor.
+   * 
+   * @param pattern literal pattern,
+   * @param chunkSize chunk size used when reading content.
+   */
+  ContentMatcher(String pattern, int chunkSize)
+  {
+    this.pattern = pattern.getBytes(StandardCharsets.UTF_8);
+    this.shifts = new int[256];
+    this.chunkSize = Math.max(chunkSize, 2 * this.pattern.length);
+
+    int last = this.pattern.length - 1;
+    for(int i = 0; i < shifts.length; ++i) {
+      shifts[i] = this.pattern.length;
+    }
+    for(int i = 0; i < last; ++i) {
+      shifts[this.pattern[i] & 0xFF] = last - i;
+    }
+  }
+
+  public boolean matches(InputStream inputStream) throws IOException
+  {
+    return matches(Channels.newChannel(inputStream));
+  }
+
+  public boolean matches(FileChannel channel) throws IOException
+  {
+    long size = channel.size();
+    if(pattern.length == 0 || size < MAP_THRESHOLD) {
+      return matches((ReadableByteChannel)channel);
+    }
+
+    long windowSize = Math.max(MAP_WINDOW_SIZE, 2L * pattern.length);
+    long position = 0;
+    for(;;) {
+      long length = Math.min(windowSize, size - position);
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+      if(indexOf(buffer) != -1) {
+        return true;
+      }
+      if(position + length >= size) {
+        return false;
+      }
+      position += length - (pattern.length - 1);
+    }
+  }
+
+  public boolean matches(ReadableByteChannel channel) throws IOException
+  {
+    if(pattern.length == 0) {
+      return true;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+    while(channel.read(buffer) != -1) {
+      buffer.flip();
+      if(indexOf(buffer) != -1) {
+        return true;
+      }
+      // keep chunk tail since it can be the beginning of a match crossing chunks boundary
+      int keep = Math.min(buffer.limit(), pattern.length - 1);
+      buffer.position(buffer.limit() - keep);
+      buffer.compact();
+    }
+    return false;
+  }
+
+  private int indexOf(ByteBuffer buffer)
+  {
+    int last = pattern.length - 1;
+    int end = buffer.limit() - last;
+    int i = buffer.position();
+    while(i < end) {
+      int j = last;
+      while(buffer.get(i + j) == pattern[j]) {
+        if(j == 0) {
+          return i;
+        }
+        --j;
+      }
+      i += shifts[buffer.get(i + last) & 0xFF];
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,22 @@
+package com.jslib.commons.cli;
+
+/**
+ * How {@link FilesUtil#copyFiles(java.nio.file.Path, java.nio.file.Path, boolean, CopyStrategy)} creates target files.
+ * Strategies other than {@link #COPY} fall back to plain copy when not supported, e.g. source and target on different
+ * file stores.
+ */
+public enum CopyStrategy
+{
+  /** Copy file bytes; the only strategy always supported. */
+  COPY,
+  /**
+   * Create target files as hard links to source files; nothing is copied. Note that source and target share content so
+   * that writing in place into a target file changes the source file too; use only for read only staging.
+   */
+  HARD_LINK,
+  /**
+   * Clone source tree using file system copy-on-write support, e.g. Btrfs, XFS or APFS; target files share storage with
+   * source files till one of them is modified. Delegates to system <code>cp</code> command, on Linux and macOS only.
+   */
+  REFLINK
+}
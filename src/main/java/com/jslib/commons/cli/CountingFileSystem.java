@@ -0,0 +1,137 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delegating file system that counts and times I/O operations, for profiling commands. Paths created by this file
+ * system are bound to its counting provider so that both {@link FilesUtil} provider calls and static {@link java.nio.file.Files}
+ * utilities are recorded; paths of delegate file system are still accepted, but only operations invoked through this
+ * file system provider are counted for them.
+ *
+ * <pre>
+ * CountingFileSystem fileSystem = new CountingFileSystem(FileSystems.getDefault());
+ * FilesUtil files = new FilesUtil(fileSystem, console);
+ * ...
+ * fileSystem.getStats().report().forEach(console::print);
+ * </pre>
+ */
+public class CountingFileSystem extends FileSystem
+{
+  private final FileSystem delegate;
+  private final CountingFileSystemProvider provider;
+  private final IoStats stats;
+
+  public CountingFileSystem(FileSystem delegate)
+  {
+    this.delegate = delegate;
+    this.stats = new IoStats();
+    this.provider = new CountingFileSystemProvider(this, delegate.provider(), stats);
+  }
+
+  public IoStats getStats()
+  {
+    return stats;
+  }
+
+  FileSystem getDelegate()
+  {
+    return delegate;
+  }
+
+  Path wrap(Path path)
+  {
+    return path != null ? new CountingPath(this, path) : null;
+  }
+
+  static Path unwrap(Path path)
+  {
+    return path instanceof CountingPath ? ((CountingPath)path).getDelegate() : path;
+  }
+
+  @Override
+  public FileSystemProvider provider()
+  {
+    return provider;
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    delegate.close();
+  }
+
+  @Override
+  public boolean isOpen()
+  {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public boolean isReadOnly()
+  {
+    return delegate.isReadOnly();
+  }
+
+  @Override
+  public String getSeparator()
+  {
+    return delegate.getSeparator();
+  }
+
+  @Override
+  public Iterable<Path> getRootDirectories()
+  {
+    List<Path> roots = new ArrayList<>();
+    for(Path root : delegate.getRootDirectories()) {
+      roots.add(wrap(root));
+    }
+    return roots;
+  }
+
+  @Override
+  public Iterable<FileStore> getFileStores()
+  {
+    return delegate.getFileStores();
+  }
+
+  @Override
+  public Set<String> supportedFileAttributeViews()
+  {
+    return delegate.supportedFileAttributeViews();
+  }
+
+  @Override
+  public Path getPath(String first, String... more)
+  {
+    return wrap(delegate.getPath(first, more));
+  }
+
+  @Override
+  public PathMatcher getPathMatcher(String syntaxAndPattern)
+  {
+    PathMatcher matcher = delegate.getPathMatcher(syntaxAndPattern);
+    return path -> matcher.matches(unwrap(path));
+  }
+
+  @Override
+  public UserPrincipalLookupService getUserPrincipalLookupService()
+  {
+    return delegate.getUserPrincipalLookupService();
+  }
+
+  @Override
+  public WatchService newWatchService() throws IOException
+  {
+    return delegate.newWatchService();
+  }
+}
@@ -0,0 +1,629 @@
+package com.jslib.commons.cli;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import com.jslib.commons.cli.IoStats.Operation;
+
+/**
+ * Provider for {@link CountingFileSystem}, recording every call to {@link IoStats} before delegating it to wrapped
+ * provider. Opened streams and channels are wrapped too, in order to count read and write calls and transferred bytes.
+ * Directory stream entries are wrapped only if listed directory is a counting path, so that returned paths have the
+ * same provider as their parent.
+ */
+class CountingFileSystemProvider extends FileSystemProvider
+{
+  /** Own scheme, not the delegate one, so that the wrapper is never mistaken for the provider it wraps. */
+  static final String SCHEME = "counting";
+
+  private final CountingFileSystem fileSystem;
+  private final FileSystemProvider delegate;
+  private final IoStats stats;
+
+  CountingFileSystemProvider(CountingFileSystem fileSystem, FileSystemProvider delegate, IoStats stats)
+  {
+    this.fileSystem = fileSystem;
+    this.delegate = delegate;
+    this.stats = stats;
+  }
+
+  @Override
+  public String getScheme()
+  {
+    return SCHEME;
+  }
+
+  @Override
+  public FileSystem newFileSystem(URI uri, Map<String, ?> env) throws IOException
+  {
+    throw new UnsupportedOperationException("Counting file system is created by wrapping an existing file system.");
+  }
+
+  @Override
+  public FileSystem getFileSystem(URI uri)
+  {
+    return fileSystem;
+  }
+
+  @Override
+  public Path getPath(URI uri)
+  {
+    return fileSystem.wrap(delegate.getPath(uri));
+  }
+
+  @Override
+  public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return new CountingByteChannel(delegate.newByteChannel(unwrap(path), options, attrs));
+    }
+    finally {
+      stats.record(Operation.OPEN, start);
+    }
+  }
+
+  @Override
+  public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return new CountingFileChannel(delegate.newFileChannel(unwrap(path), options, attrs));
+    }
+    finally {
+      stats.record(Operation.OPEN, start);
+    }
+  }
+
+  @Override
+  public InputStream newInputStream(Path path, OpenOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return new CountingInputStream(delegate.newInputStream(unwrap(path), options));
+    }
+    finally {
+      stats.record(Operation.OPEN, start);
+    }
+  }
+
+  @Override
+  public OutputStream newOutputStream(Path path, OpenOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return new CountingOutputStream(delegate.newOutputStream(unwrap(path), options));
+    }
+    finally {
+      stats.record(Operation.OPEN, start);
+    }
+  }
+
+  @Override
+  public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter) throws IOException
+  {
+    boolean wrapEntries = dir instanceof CountingPath;
+    // filter is invoked by delegate with its own paths; present them as the caller expects
+    DirectoryStream.Filter<Path> delegateFilter = filter == null ? null : entry -> filter.accept(wrapEntries ? fileSystem.wrap(entry) : entry);
+
+    long start = System.nanoTime();
+    DirectoryStream<Path> stream;
+    try {
+      stream = delegate.newDirectoryStream(unwrap(dir), delegateFilter);
+    }
+    finally {
+      stats.record(Operation.LIST, start);
+    }
+    if(!wrapEntries) {
+      return stream;
+    }
+
+    return new DirectoryStream<Path>()
+    {
+      @Override
+      public Iterator<Path> iterator()
+      {
+        Iterator<Path> iterator = stream.iterator();
+        return new Iterator<Path>()
+        {
+          @Override
+          public boolean hasNext()
+          {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public Path next()
+          {
+            return fileSystem.wrap(iterator.next());
+          }
+        };
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+        stream.close();
+      }
+    };
+  }
+
+  @Override
+  public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.createDirectory(unwrap(dir), attrs);
+    }
+    finally {
+      stats.record(Operation.CREATE, start);
+    }
+  }
+
+  @Override
+  public void createSymbolicLink(Path link, Path target, FileAttribute<?>... attrs) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.createSymbolicLink(unwrap(link), unwrap(target), attrs);
+    }
+    finally {
+      stats.record(Operation.CREATE, start);
+    }
+  }
+
+  @Override
+  public void createLink(Path link, Path existing) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.createLink(unwrap(link), unwrap(existing));
+    }
+    finally {
+      stats.record(Operation.CREATE, start);
+    }
+  }
+
+  @Override
+  public void delete(Path path) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.delete(unwrap(path));
+    }
+    finally {
+      stats.record(Operation.DELETE, start);
+    }
+  }
+
+  @Override
+  public boolean deleteIfExists(Path path) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return delegate.deleteIfExists(unwrap(path));
+    }
+    finally {
+      stats.record(Operation.DELETE, start);
+    }
+  }
+
+  @Override
+  public Path readSymbolicLink(Path link) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      Path target = delegate.readSymbolicLink(unwrap(link));
+      return link instanceof CountingPath ? fileSystem.wrap(target) : target;
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public void copy(Path source, Path target, CopyOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.copy(unwrap(source), unwrap(target), options);
+    }
+    finally {
+      stats.record(Operation.COPY, start);
+    }
+  }
+
+  @Override
+  public void move(Path source, Path target, CopyOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.move(unwrap(source), unwrap(target), options);
+    }
+    finally {
+      stats.record(Operation.MOVE, start);
+    }
+  }
+
+  @Override
+  public boolean isSameFile(Path path, Path path2) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return delegate.isSameFile(unwrap(path), unwrap(path2));
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public boolean isHidden(Path path) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return delegate.isHidden(unwrap(path));
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public FileStore getFileStore(Path path) throws IOException
+  {
+    return delegate.getFileStore(unwrap(path));
+  }
+
+  @Override
+  public void checkAccess(Path path, AccessMode... modes) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      delegate.checkAccess(unwrap(path), modes);
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options)
+  {
+    // attributes view is lazy, file system is not accessed until view read or write
+    return delegate.getFileAttributeView(unwrap(path), type, options);
+  }
+
+  @Override
+  public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return delegate.readAttributes(unwrap(path), type, options);
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException
+  {
+    long start = System.nanoTime();
+    try {
+      return delegate.readAttributes(unwrap(path), attributes, options);
+    }
+    finally {
+      stats.record(Operation.STAT, start);
+    }
+  }
+
+  @Override
+  public void setAttribute(Path path, String attribute, Object value, LinkOption... options) throws IOException
+  {
+    delegate.setAttribute(unwrap(path), attribute, value, options);
+  }
+
+  private static Path unwrap(Path path)
+  {
+    return CountingFileSystem.unwrap(path);
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private class CountingInputStream extends FilterInputStream
+  {
+    CountingInputStream(InputStream stream)
+    {
+      super(stream);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      long start = System.nanoTime();
+      int b = in.read();
+      stats.record(Operation.READ, start, b != -1 ? 1 : 0);
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = in.read(buffer, offset, length);
+      stats.record(Operation.READ, start, count);
+      return count;
+    }
+  }
+
+  private class CountingOutputStream extends FilterOutputStream
+  {
+    CountingOutputStream(OutputStream stream)
+    {
+      super(stream);
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+      long start = System.nanoTime();
+      out.write(b);
+      stats.record(Operation.WRITE, start, 1);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException
+    {
+      // filter output stream writes byte by byte; delegate bulk write as it is
+      long start = System.nanoTime();
+      out.write(buffer, offset, length);
+      stats.record(Operation.WRITE, start, length);
+    }
+  }
+
+  private class CountingByteChannel implements SeekableByteChannel
+  {
+    private final SeekableByteChannel channel;
+
+    CountingByteChannel(SeekableByteChannel channel)
+    {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.read(buffer);
+      stats.record(Operation.READ, start, count);
+      return count;
+    }
+
+    @Override
+    public int write(ByteBuffer buffer) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.write(buffer);
+      stats.record(Operation.WRITE, start, count);
+      return count;
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+      return channel.position();
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException
+    {
+      channel.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+      return channel.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) throws IOException
+    {
+      channel.truncate(size);
+      return this;
+    }
+
+    @Override
+    public boolean isOpen()
+    {
+      return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      channel.close();
+    }
+  }
+
+  private class CountingFileChannel extends FileChannel
+  {
+    private final FileChannel channel;
+
+    CountingFileChannel(FileChannel channel)
+    {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.read(buffer);
+      stats.record(Operation.READ, start, count);
+      return count;
+    }
+
+    @Override
+    public long read(ByteBuffer[] buffers, int offset, int length) throws IOException
+    {
+      long start = System.nanoTime();
+      long count = channel.read(buffers, offset, length);
+      stats.record(Operation.READ, start, count);
+      return count;
+    }
+
+    @Override
+    public int read(ByteBuffer buffer, long position) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.read(buffer, position);
+      stats.record(Operation.READ, start, count);
+      return count;
+    }
+
+    @Override
+    public int write(ByteBuffer buffer) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.write(buffer);
+      stats.record(Operation.WRITE, start, count);
+      return count;
+    }
+
+    @Override
+    public long write(ByteBuffer[] buffers, int offset, int length) throws IOException
+    {
+      long start = System.nanoTime();
+      long count = channel.write(buffers, offset, length);
+      stats.record(Operation.WRITE, start, count);
+      return count;
+    }
+
+    @Override
+    public int write(ByteBuffer buffer, long position) throws IOException
+    {
+      long start = System.nanoTime();
+      int count = channel.write(buffer, position);
+      stats.record(Operation.WRITE, start, count);
+      return count;
+    }
+
+    @Override
+    public long position() throws IOException
+    {
+      return channel.position();
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException
+    {
+      channel.position(newPosition);
+      return this;
+    }
+
+    @Override
+    public long size() throws IOException
+    {
+      return channel.size();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException
+    {
+      channel.truncate(size);
+      return this;
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException
+    {
+      channel.force(metaData);
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException
+    {
+      if(target instanceof CountingFileChannel) {
+        // unwrap target so that delegate channel can use operating system transfer, if available
+        long start = System.nanoTime();
+        long transferred = channel.transferTo(position, count, ((CountingFileChannel)target).channel);
+        stats.record(Operation.READ, start, transferred);
+        stats.record(Operation.WRITE, start, transferred);
+        return transferred;
+      }
+      long start = System.nanoTime();
+      long transferred = channel.transferTo(position, count, target);
+      stats.record(Operation.READ, start, transferred);
+      return transferred;
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException
+    {
+      if(source instanceof CountingFileChannel) {
+        long start = System.nanoTime();
+        long transferred = channel.transferFrom(((CountingFileChannel)source).channel, position, count);
+        stats.record(Operation.READ, start, transferred);
+        stats.record(Operation.WRITE, start, transferred);
+        return transferred;
+      }
+      long start = System.nanoTime();
+      long transferred = channel.transferFrom(source, position, count);
+      stats.record(Operation.WRITE, start, transferred);
+      return transferred;
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException
+    {
+      return channel.map(mode, position, size);
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException
+    {
+      return channel.lock(position, size, shared);
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException
+    {
+      return channel.tryLock(position, size, shared);
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException
+    {
+      channel.close();
+    }
+  }
+}
@@ -0,0 +1,223 @@
+package com.jslib.commons.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+
+/**
+ * Path of {@link CountingFileSystem}, delegating all path operations to a path of wrapped file system. Returned paths
+ * are wrapped too so that file system operations on them are still routed to counting provider.
+ */
+class CountingPath implements Path
+{
+  private final CountingFileSystem fileSystem;
+  private final Path delegate;
+
+  CountingPath(CountingFileSystem fileSystem, Path delegate)
+  {
+    this.fileSystem = fileSystem;
+    this.delegate = delegate;
+  }
+
+  Path getDelegate()
+  {
+    return delegate;
+  }
+
+  @Override
+  public FileSystem getFileSystem()
+  {
+    return fileSystem;
+  }
+
+  @Override
+  public boolean isAbsolute()
+  {
+    return delegate.isAbsolute();
+  }
+
+  @Override
+  public Path getRoot()
+  {
+    return fileSystem.wrap(delegate.getRoot());
+  }
+
+  @Override
+  public Path getFileName()
+  {
+    return fileSystem.wrap(delegate.getFileName());
+  }
+
+  @Override
+  public Path getParent()
+  {
+    return fileSystem.wrap(delegate.getParent());
+  }
+
+  @Override
+  public int getNameCount()
+  {
+    return delegate.getNameCount();
+  }
+
+  @Override
+  public Path getName(int index)
+  {
+    return fileSystem.wrap(delegate.getName(index));
+  }
+
+  @Override
+  public Path subpath(int beginIndex, int endIndex)
+  {
+    return fileSystem.wrap(delegate.subpath(beginIndex, endIndex));
+  }
+
+  @Override
+  public boolean startsWith(Path other)
+  {
+    return delegate.startsWith(CountingFileSystem.unwrap(other));
+  }
+
+  @Override
+  public boolean startsWith(String other)
+  {
+    return delegate.startsWith(other);
+  }
+
+  @Override
+  public boolean endsWith(Path other)
+  {
+    return delegate.endsWith(CountingFileSystem.unwrap(other));
+  }
+
+  @Override
+  public boolean endsWith(String other)
+  {
+    return delegate.endsWith(other);
+  }
+
+  @Override
+  public Path normalize()
+  {
+    return fileSystem.wrap(delegate.normalize());
+  }
+
+  @Override
+  public Path resolve(Path other)
+  {
+    return fileSystem.wrap(delegate.resolve(CountingFileSystem.unwrap(other)));
+  }
+
+  @Override
+  public Path resolve(String other)
+  {
+    return fileSystem.wrap(delegate.resolve(other));
+  }
+
+  @Override
+  public Path resolveSibling(Path other)
+  {
+    return fileSystem.wrap(delegate.resolveSibling(CountingFileSystem.unwrap(other)));
+  }
+
+  @Override
+  public Path resolveSibling(String other)
+  {
+    return fileSystem.wrap(delegate.resolveSibling(other));
+  }
+
+  @Override
+  public Path relativize(Path other)
+  {
+    return fileSystem.wrap(delegate.relativize(CountingFileSystem.unwrap(other)));
+  }
+
+  @Override
+  public URI toUri()
+  {
+    return delegate.toUri();
+  }
+
+  @Override
+  public Path toAbsolutePath()
+  {
+    return fileSystem.wrap(delegate.toAbsolutePath());
+  }
+
+  @Override
+  public Path toRealPath(LinkOption... options) throws IOException
+  {
+    return fileSystem.wrap(delegate.toRealPath(options));
+  }
+
+  @Override
+  public File toFile()
+  {
+    return delegate.toFile();
+  }
+
+  @Override
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) throws IOException
+  {
+    return delegate.register(watcher, events, modifiers);
+  }
+
+  @Override
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>... events) throws IOException
+  {
+    return delegate.register(watcher, events);
+  }
+
+  @Override
+  public Iterator<Path> iterator()
+  {
+    Iterator<Path> iterator = delegate.iterator();
+    return new Iterator<Path>()
+    {
+      @Override
+      public boolean hasNext()
+      {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Path next()
+      {
+        return fileSystem.wrap(iterator.next());
+      }
+    };
+  }
+
+  @Override
+  public int compareTo(Path other)
+  {
+    return delegate.compareTo(CountingFileSystem.unwrap(other));
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if(this == obj) return true;
+    if(!(obj instanceof CountingPath)) return false;
+    return delegate.equals(((CountingPath)obj).delegate);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public String toString()
+  {
+    return delegate.toString();
+  }
+}
@@ -0,0 +1,234 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.jslib.util.Strings;
+
+/**
+ * Disk usage of a directory tree: total bytes and files count, and the same totals for every subdirectory up to a
+ * depth cap. As with <code>du --max-depth</code>, the depth cap limits only the breakdown; totals always include the
+ * entire tree. Paths are relative to root directory, always with slash separator. Symbolic links are not followed and
+ * count as files with the size of the link itself.
+ * <p>
+ * Directories are listed in parallel, a fork-join task per directory, so that listing and attributes latency of network
+ * volumes overlaps.
+ */
+public class DiskUsage
+{
+  private final Entry root;
+  private final Map<String, Entry> directories;
+
+  private DiskUsage(Entry root, Map<String, Entry> directories)
+  {
+    this.root = root;
+    this.directories = directories;
+  }
+
+  /**
+   * Compute disk usage for directory tree.
+   *
+   * @param files files utility used for file system access,
+   * @param rootDir root directory,
+   * @param maxDepth maximum depth of directories breakdown, 1 for root children only, negative for unlimited,
+   * @param excludes matcher for files and directories to ignore, null to include all,
+   * @param parallelism number of listing threads.
+   * @return disk usage.
+   * @throws IOException if any directory listing or attributes read fails.
+   */
+  public static DiskUsage compute(FilesUtil files, Path rootDir, int maxDepth, PathMatcher excludes, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    Map<String, Entry> directories = new ConcurrentHashMap<>();
+    Failures failures = new Failures();
+
+    Entry root;
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      root = pool.invoke(new DirectoryTask(files, rootDir, "", 0, maxDepth < 0 ? Integer.MAX_VALUE : maxDepth, excludes, directories, failures));
+    }
+    finally {
+      pool.shutdown();
+    }
+    failures.throwIfAny(Strings.format("Fail to compute disk usage for %s.", rootDir));
+    return new DiskUsage(root, new TreeMap<>(directories));
+  }
+
+  public long getBytes()
+  {
+    return root.bytes;
+  }
+
+  public long getFilesCount()
+  {
+    return root.filesCount;
+  }
+
+  public long getDirectoriesCount()
+  {
+    return root.directoriesCount;
+  }
+
+  /** Get usage of subdirectory with given relative path or null if directory is missing or beyond depth cap. */
+  public Entry getDirectory(String path)
+  {
+    return directories.get(path);
+  }
+
+  /** Get usage of all subdirectories up to depth cap, sorted by relative path. */
+  public List<Entry> getDirectories()
+  {
+    return new ArrayList<>(directories.values());
+  }
+
+  /**
+   * Get largest subtrees, in bytes descending order. Nested directories are reported independently, so a large
+   * directory and its parent may be both present.
+   *
+   * @param count maximum number of returned subtrees.
+   * @return largest subtrees, possible empty.
+   */
+  public List<Entry> getLargest(int count)
+  {
+    List<Entry> entries = new ArrayList<>(directories.values());
+    Collections.sort(entries, Comparator.comparingLong(Entry::getBytes).reversed().thenComparing(Entry::getPath));
+    return entries.subList(0, Math.min(count, entries.size()));
+  }
+
+  @Override
+  public String toString()
+  {
+    return root.toString();
+  }
+
+  /** Totals for a directory subtree, the directory itself excluded from directories count. */
+  public static class Entry
+  {
+    private final String path;
+    private final long bytes;
+    private final long filesCount;
+    private final long directoriesCount;
+
+    private Entry(String path, long bytes, long filesCount, long directoriesCount)
+    {
+      this.path = path;
+      this.bytes = bytes;
+      this.filesCount = filesCount;
+      this.directoriesCount = directoriesCount;
+    }
+
+    public String getPath()
+    {
+      return path;
+    }
+
+    public long getBytes()
+    {
+      return bytes;
+    }
+
+    public long getFilesCount()
+    {
+      return filesCount;
+    }
+
+    public long getDirectoriesCount()
+    {
+      return directoriesCount;
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Entry [path=" + path + ", bytes=" + bytes + ", filesCount=" + filesCount + ", directoriesCount=" + directoriesCount + "]";
+    }
+  }
+
+  /**
+   * Sum directory files size and fork a task for every subdirectory. Result is subtree totals; a failed directory
+   * contributes with what was read before failure.
+   */
+  private static class DirectoryTask extends RecursiveTask<Entry>
+  {
+    private static final long serialVersionUID = 1949271542317394120L;
+
+    private final FilesUtil files;
+    private final Path dir;
+    private final String path;
+    private final int depth;
+    private final int maxDepth;
+    private final PathMatcher excludes;
+    private final Map<String, Entry> directories;
+    private final Failures failures;
+
+    public DirectoryTask(FilesUtil files, Path dir, String path, int depth, int maxDepth, PathMatcher excludes, Map<String, Entry> directories, Failures failures)
+    {
+      this.files = files;
+      this.dir = dir;
+      this.path = path;
+      this.depth = depth;
+      this.maxDepth = maxDepth;
+      this.excludes = excludes;
+      this.directories = directories;
+      this.failures = failures;
+    }
+
+    @Override
+    protected Entry compute()
+    {
+      FileSystemProvider provider = files.getFileSystem().provider();
+      List<DirectoryTask> subtasks = new ArrayList<>();
+      long bytes = 0;
+      long filesCount = 0;
+
+      try (DirectoryStream<Path> directoryStream = provider.newDirectoryStream(dir, file -> excludes == null || !excludes.matches(file))) {
+        for(Path file : directoryStream) {
+          BasicFileAttributes attributes = provider.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if(attributes.isDirectory()) {
+            String name = file.getFileName().toString();
+            DirectoryTask subtask = new DirectoryTask(files, file, path.isEmpty() ? name : path + '/' + name, depth + 1, maxDepth, excludes, directories, failures);
+            subtask.fork();
+            subtasks.add(subtask);
+            continue;
+          }
+          bytes += attributes.size();
+          ++filesCount;
+        }
+      }
+      catch(IOException | DirectoryIteratorException e) {
+        failures.add(e);
+      }
+
+      long directoriesCount = subtasks.size();
+      for(DirectoryTask subtask : subtasks) {
+        Entry entry = subtask.join();
+        bytes += entry.bytes;
+        filesCount += entry.filesCount;
+        directoriesCount += entry.directoriesCount;
+      }
+
+      Entry entry = new Entry(path, bytes, filesCount, directoriesCount);
+      if(depth > 0 && depth <= maxDepth) {
+        directories.put(path, entry);
+      }
+      return entry;
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.jslib.util.Strings;
+
+/**
+ * Thread safe collector for failures raised by concurrent workers. Workers record their failures and keep going; when
+ * all workers are done the owner throws a single exception with every recorded failure attached as suppressed.
+ */
+class Failures
+{
+  private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+  public void add(Throwable failure)
+  {
+    failures.add(failure);
+  }
+
+  public boolean isEmpty()
+  {
+    return failures.isEmpty();
+  }
+
+  public void throwIfAny(String message) throws IOException
+  {
+    if(failures.isEmpty()) {
+      return;
+    }
+    Throwable first = failures.peek();
+    IOException exception = new IOException(Strings.format("%s %d failure(s); first one: %s", message, failures.size(), first.getMessage()));
+    for(Throwable failure : failures) {
+      exception.addSuppressed(failure);
+    }
+    throw exception;
+  }
+}
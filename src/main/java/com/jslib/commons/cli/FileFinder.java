@@ -0,0 +1,138 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Answer many file queries in a single tree traversal. Register queries - by extension, file name pattern, glob or
+ * custom condition, then {@link #find(Path)} on a root directory and read results from returned query instances. A
+ * query created for first match only stops being evaluated once satisfied; tree walk stops when all queries are
+ * satisfied.
+ *
+ * <pre>
+ * FileFinder finder = new FileFinder(files);
+ * FileFinder.Query descriptor = finder.addNamePattern(Pattern.compile("^project\\.xml$"), true);
+ * FileFinder.Query pages = finder.addExtension(".htm", false);
+ * finder.find(projectDir);
+ * </pre>
+ */
+public class FileFinder
+{
+  private final FilesUtil files;
+  private final List<Query> queries = new ArrayList<>();
+
+  public FileFinder(FilesUtil files)
+  {
+    this.files = files;
+  }
+
+  public Query addExtension(String extension, boolean firstOnly)
+  {
+    return add((file, relativeFile) -> files.hasExtension(file, extension), firstOnly);
+  }
+
+  public Query addNamePattern(Pattern pattern, boolean firstOnly)
+  {
+    return add((file, relativeFile) -> pattern.matcher(file.getFileName().toString()).find(), firstOnly);
+  }
+
+  /**
+   * Add query for files matching glob pattern. Glob has file system syntax and is matched against file path relative to
+   * root directory, e.g. <code>**&#47;*.{htm,css}</code>.
+   *
+   * @param glob glob pattern,
+   * @param firstOnly stop on first match.
+   * @return query instance.
+   */
+  public Query addGlob(String glob, boolean firstOnly)
+  {
+    PathMatcher matcher = files.getFileSystem().getPathMatcher("glob:" + glob);
+    return add((file, relativeFile) -> matcher.matches(relativeFile), firstOnly);
+  }
+
+  public Query add(Condition condition, boolean firstOnly)
+  {
+    Query query = new Query(condition, firstOnly);
+    queries.add(query);
+    return query;
+  }
+
+  public void find(Path rootDir) throws IOException
+  {
+    List<Query> activeQueries = new ArrayList<>(queries);
+    for(Query query : activeQueries) {
+      query.files.clear();
+    }
+    if(activeQueries.isEmpty()) {
+      return;
+    }
+
+    files.walkFileTree(rootDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        Path relativeFile = rootDir.relativize(file);
+        for(int i = activeQueries.size() - 1; i >= 0; --i) {
+          Query query = activeQueries.get(i);
+          if(query.condition.accept(file, relativeFile)) {
+            query.files.add(file);
+            if(query.firstOnly) {
+              activeQueries.remove(i);
+            }
+          }
+        }
+        return activeQueries.isEmpty() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  @FunctionalInterface
+  public interface Condition
+  {
+    /**
+     * Test if file matches query condition.
+     *
+     * @param file file path as reported by tree walk,
+     * @param relativeFile file path relative to root directory.
+     * @return true if file matches.
+     */
+    boolean accept(Path file, Path relativeFile);
+  }
+
+  public static class Query
+  {
+    private final Condition condition;
+    private final boolean firstOnly;
+    private final List<Path> files = new ArrayList<>();
+
+    private Query(Condition condition, boolean firstOnly)
+    {
+      this.condition = condition;
+      this.firstOnly = firstOnly;
+    }
+
+    /**
+     * Get first found file or null if none found.
+     *
+     * @return first found file, possible null.
+     */
+    public Path getFile()
+    {
+      return files.isEmpty() ? null : files.get(0);
+    }
+
+    public List<Path> getFiles()
+    {
+      return Collections.unmodifiableList(files);
+    }
+  }
+}
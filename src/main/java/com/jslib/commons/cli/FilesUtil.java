@@ -1,33 +1,76 @@
 package com.jslib.commons.cli;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystemException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.jslib.lang.BugError;
 import com.jslib.util.Params;
@@ -35,9 +78,28 @@ import com.jslib.util.Strings;
 
 public class FilesUtil
 {
-  private final FileSystem fileSystem;
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** URI scheme of the operating system file system provider. */
+  private static final String LOCAL_FILE_SCHEME = "file";
+  /** Pending files per worker on parallel content search queue. */
+  private static final int SEARCH_QUEUE_FACTOR = 4;
+  /** Trash directories are claimed by renaming them to a name with this marker followed by owner JVM identifier. */
+  private static final String CLAIMED_TRASH = "claimed";
+  private static final String TRASH_OWNER = UUID.randomUUID().toString();
+  /** Trash directory claimed by another owner and not modified for this interval, in milliseconds, is abandoned. */
+  private static final long STALE_TRASH_INTERVAL = 60 * 60 * 1000;
+
+  /** Digest and direct buffer reused by hashing on every thread so that hashing throughput is not bound by allocation. */
+  private static final ThreadLocal<MessageDigest> MESSAGE_DIGEST = ThreadLocal.withInitial(FilesUtil::createMessageDigest);
+  private static final ThreadLocal<ByteBuffer> DIGEST_BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+  private FileSystem fileSystem;
   private final IConsole console;
 
+  /** Optional persistent cache for content digests, null if not configured. */
+  private HashCache hashCache;
+
   public FilesUtil()
   {
     this.fileSystem = null;
@@ -50,6 +112,24 @@ public class FilesUtil
     this.console = console;
   }
 
+  public FileSystem getFileSystem()
+  {
+    return fileSystem;
+  }
+
+  /**
+   * Replace file system used by this utility instance, keeping its configuration and, for subclasses, their state. It
+   * is meant for wrapping current file system, e.g. with {@link CountingFileSystem}, before this instance is used; it
+   * is not safe to call it while other threads are using this instance.
+   *
+   * @param fileSystem file system, usually wrapping current one.
+   */
+  public void setFileSystem(FileSystem fileSystem)
+  {
+    Params.notNull(fileSystem, "File system");
+    this.fileSystem = fileSystem;
+  }
+
   public Path getWorkingDir()
   {
     return fileSystem.getPath("").toAbsolutePath();
@@ -72,11 +152,14 @@ public class FilesUtil
 
   public List<String> getFileNames(Path dir) throws IOException
   {
-    List<String> fileNames = new ArrayList<>();
-    for(Path file : listFiles(dir)) {
-      fileNames.add(getFileBasename(file));
+    try (Stream<String> fileNames = streamFileNames(dir)) {
+      return fileNames.collect(Collectors.toList());
     }
-    return fileNames;
+  }
+
+  public Stream<String> streamFileNames(Path dir) throws IOException
+  {
+    return streamFiles(dir).map(this::getFileBasename);
   }
 
   public String getFileBasename(Path file)
@@ -157,20 +240,56 @@ public class FilesUtil
 
   public void cleanDirectory(Path rootDir, boolean verbose, Path... excludes) throws IOException
   {
-    List<Path> excludesList = Arrays.asList(excludes);
+    Set<Path> excludesSet = new HashSet<>(Arrays.asList(excludes));
+    cleanDirectory(rootDir, verbose, excludesSet::contains);
+  }
+
+  public void cleanDirectory(Path rootDir, boolean verbose, PathMatcher excludes) throws IOException
+  {
+    cleanDirectory(rootDir, verbose, excludes, new ProgressMeter(null));
+  }
+
+  /**
+   * Clean directory reporting deleted files and bytes to progress meter. Files are discovered while deleted so
+   * remaining time is not known unless expected totals are set on meter, e.g. from {@link #diskUsage(Path, int)}.
+   *
+   * @param rootDir directory to clean,
+   * @param verbose print every deleted file,
+   * @param excludes matcher for files and directories to keep,
+   * @param meter progress meter.
+   * @return final statistics.
+   * @throws IOException if any deletion fails.
+   */
+  public BulkStats cleanDirectory(Path rootDir, boolean verbose, PathMatcher excludes, ProgressMeter meter) throws IOException
+  {
+    // directories containing excluded files or directories cannot be deleted
+    Set<Path> keptDirs = new HashSet<>();
+
     // walk file tree is depth-first so that the most inner files and directories are removed first
     walkFileTree(rootDir, new SimpleFileVisitor<Path>()
     {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+      {
+        if(!rootDir.equals(dir) && excludes.matches(dir)) {
+          keepAncestors(rootDir, dir, keptDirs);
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
       @Override
       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
       {
-        if(excludesList.contains(file)) {
+        if(excludes.matches(file)) {
+          keepAncestors(rootDir, file, keptDirs);
           return FileVisitResult.CONTINUE;
         }
         if(verbose) {
           console.print("Delete file %s.", file);
         }
         delete(file);
+        meter.add(1, attrs.size());
         return FileVisitResult.CONTINUE;
       }
 
@@ -180,7 +299,7 @@ public class FilesUtil
         if(exc != null) {
           throw exc;
         }
-        if(rootDir.equals(dir)) {
+        if(rootDir.equals(dir) || keptDirs.contains(dir)) {
           return FileVisitResult.CONTINUE;
         }
         if(verbose) {
@@ -190,6 +309,298 @@ public class FilesUtil
         return FileVisitResult.CONTINUE;
       }
     });
+    return meter.finish();
+  }
+
+  private static void keepAncestors(Path rootDir, Path path, Set<Path> keptDirs)
+  {
+    Path parent = path.getParent();
+    while(parent != null && !parent.equals(rootDir) && keptDirs.add(parent)) {
+      parent = parent.getParent();
+    }
+  }
+
+  public void cleanDirectory(Path rootDir, boolean verbose, int parallelism, PathMatcher excludes) throws IOException
+  {
+    cleanDirectory(rootDir, verbose, parallelism, excludes, new ProgressMeter(null));
+  }
+
+  /**
+   * Parallel clean directory reporting deleted files and bytes to progress meter. Every directory is listed before its
+   * files are deleted so that, if expected totals are not set on meter, remaining time is estimated from files
+   * discovered so far; estimate is a lower bound that grows while the tree walk progresses.
+   *
+   * @param rootDir directory to clean,
+   * @param verbose print every deleted file,
+   * @param parallelism number of deleting threads,
+   * @param excludes matcher for files and directories to keep,
+   * @param meter progress meter.
+   * @return final statistics.
+   * @throws IOException if any deletion fails.
+   */
+  public BulkStats cleanDirectory(Path rootDir, boolean verbose, int parallelism, PathMatcher excludes, ProgressMeter meter) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    Failures failures = new Failures();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new CleanDirectoryTask(rootDir, verbose, excludes, meter, failures));
+    }
+    finally {
+      pool.shutdown();
+    }
+    BulkStats stats = meter.finish();
+    failures.throwIfAny(Strings.format("Fail to clean directory %s.", rootDir));
+    return stats;
+  }
+
+  /**
+   * Delete directory content and fork a new task for every child directory. Task result is true if directory was
+   * emptied, in which case parent task deletes it. Directories containing excluded or not deletable entries are kept.
+   */
+  private class CleanDirectoryTask extends RecursiveTask<Boolean>
+  {
+    private static final long serialVersionUID = 4307683596484396162L;
+
+    private final Path dir;
+    private final boolean verbose;
+    private final PathMatcher excludes;
+    private final ProgressMeter meter;
+    private final Failures failures;
+
+    public CleanDirectoryTask(Path dir, boolean verbose, PathMatcher excludes, ProgressMeter meter, Failures failures)
+    {
+      this.dir = dir;
+      this.verbose = verbose;
+      this.excludes = excludes;
+      this.meter = meter;
+      this.failures = failures;
+    }
+
+    @Override
+    protected Boolean compute()
+    {
+      FileSystemProvider provider = fileSystem.provider();
+      Map<Path, CleanDirectoryTask> subtasks = new HashMap<>();
+      Map<Path, Long> files = new HashMap<>();
+      boolean empty = true;
+
+      // list whole directory first so that subdirectories are forked early and files are discovered before deleted
+      try (DirectoryStream<Path> directoryStream = provider.newDirectoryStream(dir, path -> true)) {
+        for(Path file : directoryStream) {
+          if(excludes.matches(file)) {
+            empty = false;
+            continue;
+          }
+          try {
+            BasicFileAttributes attributes = provider.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if(attributes.isDirectory()) {
+              CleanDirectoryTask subtask = new CleanDirectoryTask(file, verbose, excludes, meter, failures);
+              subtask.fork();
+              subtasks.put(file, subtask);
+              continue;
+            }
+            files.put(file, attributes.size());
+            meter.discover(1, attributes.size());
+          }
+          catch(IOException e) {
+            failures.add(e);
+            empty = false;
+          }
+        }
+      }
+      catch(IOException | DirectoryIteratorException e) {
+        failures.add(e);
+        empty = false;
+      }
+
+      for(Map.Entry<Path, Long> entry : files.entrySet()) {
+        try {
+          if(verbose) {
+            print("Delete file %s.", entry.getKey());
+          }
+          provider.delete(entry.getKey());
+          meter.add(1, entry.getValue());
+        }
+        catch(IOException e) {
+          failures.add(e);
+          empty = false;
+        }
+      }
+
+      for(Map.Entry<Path, CleanDirectoryTask> entry : subtasks.entrySet()) {
+        if(!entry.getValue().join()) {
+          empty = false;
+          continue;
+        }
+        try {
+          if(verbose) {
+            print("Delete directory %s.", entry.getKey());
+          }
+          provider.delete(entry.getKey());
+        }
+        catch(IOException e) {
+          failures.add(e);
+          empty = false;
+        }
+      }
+      return empty;
+    }
+  }
+
+  /**
+   * Clean directory in the background. Directory content is moved to a trash directory, sibling of root directory, and
+   * trash is deleted by a background thread; on return root directory is already emptied. Excludes are matched like
+   * on {@link #cleanDirectory(Path, boolean, PathMatcher)}, nested ones included: excluded files and directories, and
+   * their ancestors, are kept in place. To find nested excludes the tree is walked before returning, though no file is
+   * deleted by caller thread.
+   * <p>
+   * Trash directories left behind by previous runs, e.g. if JVM exited before background deletion completed, are
+   * deleted too. A trash directory is claimed by atomic rename to a name carrying owner identifier, so that concurrent
+   * callers never delete the same one.
+   *
+   * @param rootDir directory to clean,
+   * @param parallelism number of deleting threads,
+   * @param excludes matcher for files and directories to keep.
+   * @return future completed when trash is deleted.
+   * @throws IOException if content move to trash fails; nothing is deleted in this case.
+   */
+  public Future<Void> cleanDirectoryDeferred(Path rootDir, int parallelism, PathMatcher excludes) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    // trash directory is a sibling of root directory, that is, on the same file system, so that move is a cheap rename;
+    // root is made absolute since a relative root with a single name has no parent
+    Path trashParent = rootDir.toAbsolutePath().getParent();
+    String trashPrefix = Strings.concat('.', rootDir.getFileName(), ".trash.");
+    String claimPrefix = Strings.concat(trashPrefix, CLAIMED_TRASH, '.');
+    String ownerPrefix = Strings.concat(claimPrefix, TRASH_OWNER, '.');
+    Path trashDir = trashParent.resolve(Strings.concat(ownerPrefix, UUID.randomUUID()));
+    createDirectory(trashDir);
+
+    // directories containing excluded files or directories are not moved; only their other children are
+    Set<Path> keptDirs = new HashSet<>();
+    walkFileTree(rootDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+      {
+        if(!rootDir.equals(dir) && excludes.matches(dir)) {
+          keepAncestors(rootDir, dir, keptDirs);
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        if(excludes.matches(file)) {
+          keepAncestors(rootDir, file, keptDirs);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    Failures failures = new Failures();
+    moveToTrash(rootDir, trashDir, excludes, keptDirs, failures);
+    if(!failures.isEmpty()) {
+      // moved content is left in an unclaimed trash directory, to be deleted by a next call
+      releaseTrash(trashDir, trashPrefix);
+      failures.throwIfAny(Strings.format("Fail to move content of %s to trash.", rootDir));
+    }
+
+    // include trash directories left behind by previous runs, e.g. if JVM exited before background deletion completed;
+    // a directory is claimed by atomic rename to an owner name so that concurrent callers never delete the same one
+    List<Path> trashDirs = new ArrayList<>();
+    trashDirs.add(trashDir);
+    try (DirectoryStream<Path> directoryStream = fileSystem.provider().newDirectoryStream(trashParent, dir -> dir.getFileName().toString().startsWith(trashPrefix))) {
+      for(Path dir : directoryStream) {
+        String name = dir.getFileName().toString();
+        if(name.startsWith(ownerPrefix) || (name.startsWith(claimPrefix) && !isStaleTrash(dir))) {
+          continue;
+        }
+        Path claimedDir = dir.resolveSibling(Strings.concat(ownerPrefix, UUID.randomUUID()));
+        try {
+          move(dir, claimedDir, StandardCopyOption.ATOMIC_MOVE);
+          trashDirs.add(claimedDir);
+        }
+        catch(IOException unused) {
+          // claimed by a concurrent caller
+        }
+      }
+    }
+
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    Thread thread = new Thread(() -> {
+      int index = 0;
+      try {
+        for(; index < trashDirs.size(); ++index) {
+          cleanDirectory(trashDirs.get(index), false, parallelism, path -> false);
+          delete(trashDirs.get(index));
+        }
+        future.complete(null);
+      }
+      catch(Throwable t) {
+        for(; index < trashDirs.size(); ++index) {
+          releaseTrash(trashDirs.get(index), trashPrefix);
+        }
+        future.completeExceptionally(t);
+      }
+    }, "clean-directory");
+    thread.setDaemon(true);
+    thread.start();
+    return future;
+  }
+
+  /** Move not excluded children of directory to trash, descending into kept directories and mirroring them on trash. */
+  private void moveToTrash(Path dir, Path trashDir, PathMatcher excludes, Set<Path> keptDirs, Failures failures) throws IOException
+  {
+    try (DirectoryStream<Path> directoryStream = fileSystem.provider().newDirectoryStream(dir, file -> !excludes.matches(file))) {
+      for(Path file : directoryStream) {
+        Path trashFile = trashDir.resolve(file.getFileName().toString());
+        try {
+          if(keptDirs.contains(file)) {
+            createDirectory(trashFile);
+            moveToTrash(file, trashFile, excludes, keptDirs, failures);
+            continue;
+          }
+          move(file, trashFile);
+        }
+        catch(IOException e) {
+          failures.add(e);
+        }
+      }
+    }
+  }
+
+  /**
+   * A trash directory claimed by another owner is considered abandoned if not modified recently. While its owner deletes
+   * it, directory modification time is updated on every removed child.
+   */
+  private boolean isStaleTrash(Path dir)
+  {
+    try {
+      long modificationTime = fileSystem.provider().readAttributes(dir, BasicFileAttributes.class).lastModifiedTime().toMillis();
+      return System.currentTimeMillis() - modificationTime > STALE_TRASH_INTERVAL;
+    }
+    catch(IOException unused) {
+      return false;
+    }
+  }
+
+  /** Rename claimed trash directory back to an unclaimed name, so that a next clean can retry its deletion. */
+  private void releaseTrash(Path dir, String trashPrefix)
+  {
+    try {
+      move(dir, dir.resolveSibling(Strings.concat(trashPrefix, System.currentTimeMillis(), '.', System.nanoTime())), StandardCopyOption.ATOMIC_MOVE);
+    }
+    catch(IOException unused) {
+      // left claimed; it is reclaimed by other owners once stale
+    }
   }
 
   public void delete(Path path) throws IOException
@@ -209,6 +620,11 @@ public class FilesUtil
     fileSystem.provider().move(source, target);
   }
 
+  public void move(Path source, Path target, CopyOption... options) throws IOException
+  {
+    fileSystem.provider().move(source, target, options);
+  }
+
   public boolean isDirectory(Path path)
   {
     try {
@@ -263,6 +679,35 @@ public class FilesUtil
     return fileSystem.provider().newOutputStream(file);
   }
 
+  /**
+   * Get output stream that replaces file atomically, on {@link AtomicOutputStream#commit()}. Until commit, bytes are
+   * written to a temporary sibling and file keeps its old content.
+   *
+   * @param file target file.
+   * @return atomic output stream.
+   * @throws IOException if temporary file creation fails.
+   */
+  public AtomicOutputStream getAtomicOutputStream(Path file) throws IOException
+  {
+    return new AtomicOutputStream(this, file, null);
+  }
+
+  public AtomicWriter getAtomicWriter(Path file) throws IOException
+  {
+    return new AtomicWriter(getAtomicOutputStream(file));
+  }
+
+  /**
+   * Start a group of atomic writes whose fsync is deferred till {@link WriteBatch#commit()}, when all files are forced
+   * and renamed together and every affected directory is synced only once.
+   *
+   * @return new write batch.
+   */
+  public WriteBatch beginWriteBatch()
+  {
+    return new WriteBatch(this);
+  }
+
   public Iterable<Path> listFiles(Path dir, DirectoryStream.Filter<Path> filter) throws IOException
   {
     return fileSystem.provider().newDirectoryStream(dir, filter);
@@ -273,6 +718,25 @@ public class FilesUtil
     return listFiles(dir, path -> true);
   }
 
+  public Stream<Path> streamFiles(Path dir) throws IOException
+  {
+    Iterable<Path> files = listFiles(dir);
+    Stream<Path> stream = StreamSupport.stream(files.spliterator(), false);
+    if(files instanceof Closeable) {
+      // directory stream holds an open OS handle; release it when stream is closed
+      Closeable closeable = (Closeable)files;
+      stream = stream.onClose(() -> {
+        try {
+          closeable.close();
+        }
+        catch(IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    }
+    return stream;
+  }
+
   public void walkFileTree(Path start, FileVisitor<Path> visitor) throws IOException
   {
     Files.walkFileTree(start, visitor);
@@ -281,7 +745,39 @@ public class FilesUtil
   public void copy(Path sourceFile, Path targetFile) throws IOException
   {
     createDirectories(targetFile.getParent());
-    copy(getReader(sourceFile), getWriter(targetFile));
+    if(isLocalFile(sourceFile) && isLocalFile(targetFile)) {
+      // let the operating system move bytes between files, without copying them into user space
+      try (FileChannel sourceChannel = FileChannel.open(sourceFile, StandardOpenOption.READ); FileChannel targetChannel = FileChannel.open(targetFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        long size = sourceChannel.size();
+        long position = 0;
+        while(position < size) {
+          long count = sourceChannel.transferTo(position, size - position, targetChannel);
+          if(count <= 0) {
+            // source shrank while copying or channel made no progress; do not leave a silently truncated target
+            throw new IOException(Strings.format("Fail to copy %s to %s. Transfer stalled at %d of %d bytes.", sourceFile, targetFile, position, size));
+          }
+          position += count;
+        }
+      }
+      return;
+    }
+
+    try (InputStream inputStream = getInputStream(sourceFile); OutputStream outputStream = getOutputStream(targetFile)) {
+      copy(inputStream, outputStream);
+    }
+  }
+
+  public void copyText(Path sourceFile, Path targetFile) throws IOException
+  {
+    copyText(sourceFile, StandardCharsets.UTF_8, targetFile, StandardCharsets.UTF_8);
+  }
+
+  public void copyText(Path sourceFile, Charset sourceCharset, Path targetFile, Charset targetCharset) throws IOException
+  {
+    createDirectories(targetFile.getParent());
+    Reader reader = new InputStreamReader(getInputStream(sourceFile), sourceCharset);
+    Writer writer = new OutputStreamWriter(getOutputStream(targetFile), targetCharset);
+    copy(reader, writer);
   }
 
   public void copy(String source, Path targetFile) throws IOException
@@ -305,16 +801,47 @@ public class FilesUtil
   {
     createDirectories(targetFile.getParent());
     try (OutputStream outputStream = getOutputStream(targetFile)) {
-      byte[] buffer = new byte[1024];
-      int length;
-      while((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
-        outputStream.write(buffer, 0, length);
-      }
+      copy(inputStream, outputStream);
+    }
+  }
+
+  private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException
+  {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int length;
+    while((length = inputStream.read(buffer, 0, buffer.length)) != -1) {
+      outputStream.write(buffer, 0, length);
     }
   }
 
   public void copyFiles(Path sourceDir, Path targetDir, boolean verbose) throws IOException
   {
+    copyFiles(sourceDir, targetDir, verbose, CopyStrategy.COPY);
+  }
+
+  public void copyFiles(Path sourceDir, Path targetDir, boolean verbose, CopyStrategy strategy) throws IOException
+  {
+    copyFiles(sourceDir, targetDir, verbose, strategy, new ProgressMeter(null));
+  }
+
+  /**
+   * Copy files reporting copied files and bytes to progress meter. Files are discovered while copied so remaining time
+   * is not known unless expected totals are set on meter, e.g. from {@link #diskUsage(Path, int)}. A tree cloned with
+   * {@link CopyStrategy#REFLINK} is done in a single step and reports no files.
+   *
+   * @param sourceDir source directory,
+   * @param targetDir target directory,
+   * @param verbose print every copied file,
+   * @param strategy copy strategy,
+   * @param meter progress meter.
+   * @return final statistics.
+   * @throws IOException if any copy fails.
+   */
+  public BulkStats copyFiles(Path sourceDir, Path targetDir, boolean verbose, CopyStrategy strategy, ProgressMeter meter) throws IOException
+  {
+    if(strategy == CopyStrategy.REFLINK && cloneFiles(sourceDir, targetDir, verbose)) {
+      return meter.finish();
+    }
     walkFileTree(sourceDir, new SimpleFileVisitor<Path>()
     {
       @Override
@@ -326,13 +853,495 @@ public class FilesUtil
         }
         Path targetFile = targetDir.resolve(relativeFile);
         createDirectory(targetFile.getParent());
-        fileSystem.provider().copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        copyFile(file, targetFile, strategy);
+        meter.add(1, attrs.size());
         return FileVisitResult.CONTINUE;
       }
     });
+    return meter.finish();
+  }
+
+  public void copyFiles(Path sourceDir, Path targetDir, boolean verbose, int parallelism) throws IOException
+  {
+    copyFiles(sourceDir, targetDir, verbose, parallelism, CopyStrategy.COPY);
+  }
+
+  public void copyFiles(Path sourceDir, Path targetDir, boolean verbose, int parallelism, CopyStrategy strategy) throws IOException
+  {
+    copyFiles(sourceDir, targetDir, verbose, parallelism, strategy, new ProgressMeter(null));
+  }
+
+  /**
+   * Parallel copy files reporting copied files and bytes to progress meter. Every directory is listed before its files
+   * are copied so that, if expected totals are not set on meter, remaining time is estimated from files discovered so
+   * far; estimate is a lower bound that grows while the tree walk progresses. A tree cloned with
+   * {@link CopyStrategy#REFLINK} is done in a single step and reports no files.
+   *
+   * @param sourceDir source directory,
+   * @param targetDir target directory,
+   * @param verbose print every copied file,
+   * @param parallelism number of copying threads,
+   * @param strategy copy strategy,
+   * @param meter progress meter.
+   * @return final statistics.
+   * @throws IOException if any copy fails.
+   */
+  public BulkStats copyFiles(Path sourceDir, Path targetDir, boolean verbose, int parallelism, CopyStrategy strategy, ProgressMeter meter) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    if(strategy == CopyStrategy.REFLINK && cloneFiles(sourceDir, targetDir, verbose)) {
+      return meter.finish();
+    }
+    createDirectories(targetDir);
+
+    Failures failures = new Failures();
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new CopyDirectoryTask(sourceDir, targetDir, sourceDir, verbose, strategy, meter, failures));
+    }
+    finally {
+      pool.shutdown();
+    }
+    BulkStats stats = meter.finish();
+    failures.throwIfAny(Strings.format("Fail to copy files from %s to %s.", sourceDir, targetDir));
+    return stats;
+  }
+
+  /**
+   * Copy a single file using requested strategy. Hard link falls back to bytes copy if file system does not support
+   * links or if source and target are on different file stores. Reflink is performed per tree, see
+   * {@link #cloneFiles(Path, Path, boolean)}, and at file level is a plain copy.
+   */
+  private void copyFile(Path sourceFile, Path targetFile, CopyStrategy strategy) throws IOException
+  {
+    FileSystemProvider provider = fileSystem.provider();
+    if(strategy == CopyStrategy.HARD_LINK) {
+      try {
+        provider.deleteIfExists(targetFile);
+        provider.createLink(targetFile, sourceFile);
+        return;
+      }
+      catch(UnsupportedOperationException unused) {
+        // links not supported by file system provider; fall back to bytes copy
+      }
+      catch(FileSystemException e) {
+        // subclasses are real errors, e.g. access denied; only not supported or cross device link falls back
+        if(e.getClass() != FileSystemException.class || !isNotSupported(e.getReason())) {
+          throw e;
+        }
+      }
+    }
+    provider.copy(sourceFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Clone source directory content into target directory with system <code>cp</code> command, using copy-on-write
+   * support from file system. Supported only for default file system on Linux and macOS. A single process clones the
+   * entire tree so that there is no per file process overhead. Symbolic links are followed, so that target tree has no
+   * links, as with bytes copy.
+   *
+   * @return true if tree was cloned, false if cloning is not supported and caller should fall back to copy.
+   * @throws IOException if cloning fails for other reason than missing copy-on-write support.
+   */
+  private boolean cloneFiles(Path sourceDir, Path targetDir, boolean verbose) throws IOException
+  {
+    if(!isLocalFile(sourceDir)) {
+      return false;
+    }
+    String osName = System.getProperty("os.name").toLowerCase();
+    String cloneOption;
+    if(osName.contains("linux")) {
+      cloneOption = "--reflink=always";
+    }
+    else if(osName.contains("mac")) {
+      cloneOption = "-c";
+    }
+    else {
+      return false;
+    }
+
+    createDirectories(targetDir);
+    if(verbose) {
+      console.print("Clone directory %s", sourceDir);
+    }
+    ProcessBuilder builder = new ProcessBuilder("cp", "-R", "-L", cloneOption, sourceDir.toString() + "/.", targetDir.toString());
+    builder.redirectErrorStream(true);
+    Process process = builder.start();
+    try {
+      // output is read before waiting for exit, so that a verbose failure cannot block on a full pipe
+      StringWriter output = new StringWriter();
+      copy(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8), output);
+      if(process.waitFor() == 0) {
+        return true;
+      }
+      // missing copy-on-write support is a hint to fall back to copy; any other failure is an error
+      if(isNotSupported(output.toString())) {
+        return false;
+      }
+      throw new IOException(Strings.format("Fail to clone %s to %s: %s", sourceDir, targetDir, output.toString().trim()));
+    }
+    catch(InterruptedException e) {
+      process.destroy();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while cloning " + sourceDir);
+    }
+  }
+
+  /** Test system error message for operation not supported or cross device errors, on Linux and macOS. */
+  private static boolean isNotSupported(String message)
+  {
+    if(message == null) {
+      return false;
+    }
+    String lowerCaseMessage = message.toLowerCase();
+    return lowerCaseMessage.contains("not supported") || lowerCaseMessage.contains("cross-device");
+  }
+
+  /**
+   * Copy files from a source directory and fork a new task for every child directory. Target directory is created by
+   * parent task, before forking, so that every directory is created exactly once. Failures are recorded and do not stop
+   * sibling tasks.
+   */
+  private class CopyDirectoryTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = -3829204164337960911L;
+
+    private final Path sourceRoot;
+    private final Path targetRoot;
+    private final Path sourceDir;
+    private final boolean verbose;
+    private final CopyStrategy strategy;
+    private final ProgressMeter meter;
+    private final Failures failures;
+
+    public CopyDirectoryTask(Path sourceRoot, Path targetRoot, Path sourceDir, boolean verbose, CopyStrategy strategy, ProgressMeter meter, Failures failures)
+    {
+      this.sourceRoot = sourceRoot;
+      this.targetRoot = targetRoot;
+      this.sourceDir = sourceDir;
+      this.verbose = verbose;
+      this.strategy = strategy;
+      this.meter = meter;
+      this.failures = failures;
+    }
+
+    @Override
+    protected void compute()
+    {
+      FileSystemProvider provider = fileSystem.provider();
+      List<CopyDirectoryTask> subtasks = new ArrayList<>();
+      Map<Path, Long> files = new HashMap<>();
+
+      // list whole directory first so that subdirectories are forked early and files are discovered before copied
+      try (DirectoryStream<Path> directoryStream = provider.newDirectoryStream(sourceDir, path -> true)) {
+        for(Path file : directoryStream) {
+          try {
+            BasicFileAttributes attributes = provider.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if(attributes.isDirectory()) {
+              createDirectory(targetRoot.resolve(sourceRoot.relativize(file)));
+              CopyDirectoryTask subtask = new CopyDirectoryTask(sourceRoot, targetRoot, file, verbose, strategy, meter, failures);
+              subtask.fork();
+              subtasks.add(subtask);
+              continue;
+            }
+            files.put(file, attributes.size());
+            meter.discover(1, attributes.size());
+          }
+          catch(IOException e) {
+            failures.add(e);
+          }
+        }
+      }
+      catch(IOException | DirectoryIteratorException e) {
+        failures.add(e);
+      }
+
+      for(Map.Entry<Path, Long> entry : files.entrySet()) {
+        Path relativeFile = sourceRoot.relativize(entry.getKey());
+        try {
+          if(verbose) {
+            print("Copy file %s", relativeFile);
+          }
+          copyFile(entry.getKey(), targetRoot.resolve(relativeFile), strategy);
+          meter.add(1, entry.getValue());
+        }
+        catch(IOException e) {
+          failures.add(e);
+        }
+      }
+
+      for(CopyDirectoryTask subtask : subtasks) {
+        subtask.join();
+      }
+    }
+  }
+
+  /**
+   * Pack directory tree into a ZIP archive, compressing entries in parallel. Entries are sorted by path and already
+   * compressed formats, e.g. images or nested archives, are stored.
+   *
+   * @param sourceDir source directory, not included in entry names,
+   * @param zipFile target archive, overwritten if exists,
+   * @param parallelism number of compression threads.
+   * @throws IOException if reading source files or writing archive fails; partial archive is removed.
+   */
+  public void zip(Path sourceDir, Path zipFile, int parallelism) throws IOException
+  {
+    ZipArchive.pack(this, sourceDir, zipFile, parallelism);
+  }
+
+  /**
+   * Extract ZIP archive into target directory, concurrently. Archive should be on default file system.
+   *
+   * @param zipFile source archive,
+   * @param targetDir target directory, created if missing,
+   * @param parallelism number of extraction threads.
+   * @throws IOException if archive is not valid, has entries outside target directory or extraction fails.
+   */
+  public void unzip(Path zipFile, Path targetDir, int parallelism) throws IOException
+  {
+    ZipArchive.unpack(this, zipFile, targetDir, parallelism);
+  }
+
+  public SyncResult syncFiles(Path sourceDir, Path targetDir, boolean checksum, boolean deleteOrphans, boolean verbose) throws IOException
+  {
+    SyncResult result = new SyncResult();
+    createDirectories(targetDir);
+
+    walkFileTree(sourceDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+      {
+        Path relativeDir = sourceDir.relativize(dir);
+        Path targetSubdir = targetDir.resolve(relativeDir);
+        if(exists(targetSubdir) && !isDirectory(targetSubdir)) {
+          // source file replaced by a directory since last synchronization
+          if(verbose) {
+            console.print("Delete file %s", relativeDir);
+          }
+          delete(targetSubdir);
+          result.incrementDeletedCount();
+        }
+        createDirectory(targetSubdir);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        Path relativeFile = sourceDir.relativize(file);
+        Path targetFile = targetDir.resolve(relativeFile);
+        if(isUpToDate(file, attrs, targetFile, checksum)) {
+          result.incrementSkippedCount();
+          return FileVisitResult.CONTINUE;
+        }
+        if(isDirectory(targetFile)) {
+          // source directory replaced by a file since last synchronization; copy cannot replace a directory tree
+          if(verbose) {
+            console.print("Delete directory %s", relativeFile);
+          }
+          cleanDirectory(targetFile, false, path -> false);
+          delete(targetFile);
+          result.incrementDeletedCount();
+        }
+        if(verbose) {
+          console.print("Copy file %s", relativeFile);
+        }
+        // copy attributes too so that next synchronization can rely on target modification time
+        fileSystem.provider().copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        result.incrementCopiedCount();
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    if(deleteOrphans) {
+      walkFileTree(targetDir, new SimpleFileVisitor<Path>()
+      {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+        {
+          Path relativeFile = targetDir.relativize(file);
+          Path sourceFile = sourceDir.resolve(relativeFile);
+          if(!exists(sourceFile) || isDirectory(sourceFile)) {
+            if(verbose) {
+              console.print("Delete file %s", relativeFile);
+            }
+            delete(file);
+            result.incrementDeletedCount();
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException
+        {
+          if(exc != null) {
+            throw exc;
+          }
+          Path relativeDir = targetDir.relativize(dir);
+          if(!targetDir.equals(dir) && !isDirectory(sourceDir.resolve(relativeDir))) {
+            if(verbose) {
+              console.print("Delete directory %s", relativeDir);
+            }
+            delete(dir);
+            result.incrementDeletedCount();
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    }
+
+    return result;
+  }
+
+  private boolean isUpToDate(Path sourceFile, BasicFileAttributes sourceAttrs, Path targetFile, boolean checksum) throws IOException
+  {
+    BasicFileAttributes targetAttrs;
+    try {
+      targetAttrs = fileSystem.provider().readAttributes(targetFile, BasicFileAttributes.class);
+    }
+    catch(NoSuchFileException unused) {
+      return false;
+    }
+    // target of a different type, e.g. a directory where source is a file, is never up to date
+    if(!targetAttrs.isRegularFile() || targetAttrs.size() != sourceAttrs.size()) {
+      return false;
+    }
+    if(checksum) {
+      // bypass hash cache; checksum mode is meant to catch content changes that kept size and modification time
+      return MessageDigest.isEqual(computeDigest(sourceFile), computeDigest(targetFile));
+    }
+    // compare at milliseconds resolution since not all file systems store nanoseconds
+    return targetAttrs.lastModifiedTime().toMillis() == sourceAttrs.lastModifiedTime().toMillis();
+  }
+
+  public TreeSnapshot createSnapshot(Path dir, boolean digest) throws IOException
+  {
+    return TreeSnapshot.capture(this, dir, digest);
+  }
+
+  public void saveSnapshot(TreeSnapshot snapshot, Path file) throws IOException
+  {
+    createDirectories(file.getParent());
+    try (OutputStream outputStream = new BufferedOutputStream(getOutputStream(file))) {
+      snapshot.save(outputStream);
+    }
+  }
+
+  public TreeSnapshot loadSnapshot(Path file) throws IOException
+  {
+    try (InputStream inputStream = new BufferedInputStream(getInputStream(file))) {
+      return TreeSnapshot.load(inputStream);
+    }
+  }
+
+  public void setHashCache(HashCache hashCache)
+  {
+    this.hashCache = hashCache;
+  }
+
+  public byte[] digest(Path file) throws IOException
+  {
+    if(hashCache == null) {
+      return computeDigest(file);
+    }
+    BasicFileAttributes attributes = fileSystem.provider().readAttributes(file, BasicFileAttributes.class);
+    String path = file.toAbsolutePath().normalize().toString();
+    long modificationTime = attributes.lastModifiedTime().toMillis();
+    byte[] digest = hashCache.get(path, attributes.size(), modificationTime);
+    if(digest == null) {
+      digest = computeDigest(file);
+      hashCache.put(path, attributes.size(), modificationTime, digest);
+    }
+    return digest;
+  }
+
+  private byte[] computeDigest(Path file) throws IOException
+  {
+    MessageDigest messageDigest = getMessageDigest();
+    ByteBuffer buffer = DIGEST_BUFFER.get();
+    buffer.clear();
+    try (SeekableByteChannel channel = fileSystem.provider().newByteChannel(file, EnumSet.of(StandardOpenOption.READ))) {
+      while(channel.read(buffer) != -1) {
+        buffer.flip();
+        messageDigest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return messageDigest.digest();
+  }
+
+  /**
+   * Get message digest instance owned by current thread, reset and ready for use. Caller should complete digest
+   * computation before invoking any code that could reuse it, e.g. joining a fork-join task.
+   *
+   * @return current thread message digest.
+   */
+  static MessageDigest getMessageDigest()
+  {
+    MessageDigest messageDigest = MESSAGE_DIGEST.get();
+    messageDigest.reset();
+    return messageDigest;
+  }
+
+  private static MessageDigest createMessageDigest()
+  {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch(NoSuchAlgorithmException e) {
+      throw new BugError("Missing message digest algorithm %s.", DIGEST_ALGORITHM);
+    }
+  }
+
+  /**
+   * Compute content hashes for all regular files from a directory tree and Merkle hashes for its directories, using a
+   * fork-join pool with requested parallelism.
+   *
+   * @param dir root directory,
+   * @param parallelism number of hashing threads.
+   * @return tree hashes.
+   * @throws IOException if any file hashing fails.
+   */
+  public TreeHash hashTree(Path dir, int parallelism) throws IOException
+  {
+    return TreeHash.compute(this, dir, parallelism);
+  }
+
+  public DiskUsage diskUsage(Path dir, int parallelism) throws IOException
+  {
+    return DiskUsage.compute(this, dir, -1, null, parallelism);
+  }
+
+  /**
+   * Compute total bytes and files count of a directory tree, with per subdirectory breakdown, using a fork-join pool
+   * with requested parallelism. Use {@link DiskUsage#getLargest(int)} for top largest subtrees.
+   *
+   * @param dir root directory,
+   * @param maxDepth maximum depth of subdirectories breakdown, negative for unlimited; totals include entire tree,
+   * @param excludes matcher for files and directories to ignore, null to include all,
+   * @param parallelism number of listing threads.
+   * @return disk usage.
+   * @throws IOException if any directory listing fails.
+   */
+  public DiskUsage diskUsage(Path dir, int maxDepth, PathMatcher excludes, int parallelism) throws IOException
+  {
+    return DiskUsage.compute(this, dir, maxDepth, excludes, parallelism);
   }
 
   public Path getFileByExtension(Path dir, String extension) throws IOException
+  {
+    return getFileByExtension(dir, extension, new ProgressMeter(null));
+  }
+
+  /**
+   * Get first file with extension, reporting visited files to progress meter. Final statistics are returned by
+   * {@link ProgressMeter#finish()}, that is idempotent.
+   */
+  public Path getFileByExtension(Path dir, String extension, ProgressMeter meter) throws IOException
   {
     class FoundFile
     {
@@ -345,6 +1354,7 @@ public class FilesUtil
       @Override
       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
       {
+        meter.add(1, 0);
         if(hasExtension(file, extension)) {
           foundFile.path = file;
           return FileVisitResult.TERMINATE;
@@ -352,10 +1362,20 @@ public class FilesUtil
         return FileVisitResult.CONTINUE;
       }
     });
+    meter.finish();
     return foundFile.path;
   }
 
   public Path getFileByNamePattern(Path dir, Pattern pattern) throws IOException
+  {
+    return getFileByNamePattern(dir, pattern, new ProgressMeter(null));
+  }
+
+  /**
+   * Get first file with name matching pattern, reporting visited files to progress meter. Final statistics are returned
+   * by {@link ProgressMeter#finish()}, that is idempotent.
+   */
+  public Path getFileByNamePattern(Path dir, Pattern pattern, ProgressMeter meter) throws IOException
   {
     class FoundFile
     {
@@ -368,6 +1388,7 @@ public class FilesUtil
       @Override
       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
       {
+        meter.add(1, 0);
         String fileName = file.getFileName().toString();
         Matcher matcher = pattern.matcher(fileName);
         if(matcher.find()) {
@@ -377,10 +1398,76 @@ public class FilesUtil
         return FileVisitResult.CONTINUE;
       }
     });
+    meter.finish();
     return foundFile.path;
   }
 
+  public Path getNearestFileByExtension(Path dir, String extension, int maxDepth) throws IOException
+  {
+    return findNearestFile(dir, maxDepth, file -> hasExtension(file, extension), subdir -> false);
+  }
+
+  public Path getNearestFileByNamePattern(Path dir, Pattern pattern, int maxDepth) throws IOException
+  {
+    return findNearestFile(dir, maxDepth, file -> pattern.matcher(file.getFileName().toString()).find(), subdir -> false);
+  }
+
+  /**
+   * Breadth-first alternative to {@link #getFileByExtension(Path, String)} and {@link #getFileByNamePattern(Path, Pattern)}.
+   * Every tree level is fully checked before descending so lookup cost is proportional with match depth, not with tree
+   * size. Files directly inside given directory have depth 1. Directory entries are processed in file name order so that
+   * result is deterministic.
+   *
+   * @param dir directory to search,
+   * @param maxDepth maximum depth, Integer.MAX_VALUE for unbounded search,
+   * @param filter condition for files to find,
+   * @param prune condition for subdirectories to not descend into.
+   * @return nearest file satisfying filter condition or null if not found.
+   * @throws IOException if directory listing fails.
+   */
+  public Path findNearestFile(Path dir, int maxDepth, Predicate<Path> filter, Predicate<Path> prune) throws IOException
+  {
+    List<Path> levelDirs = Collections.singletonList(dir);
+    for(int depth = 1; depth <= maxDepth && !levelDirs.isEmpty(); ++depth) {
+      List<Path> nextLevelDirs = new ArrayList<>();
+      for(Path levelDir : levelDirs) {
+        List<Path> levelFiles;
+        try (Stream<Path> files = streamFiles(levelDir)) {
+          levelFiles = files.sorted(Comparator.comparing(file -> file.getFileName().toString())).collect(Collectors.toList());
+        }
+
+        for(Path file : levelFiles) {
+          if(isDirectory(file)) {
+            // as with tree walk, do not follow directory links; they could create cycles
+            if(!prune.test(file) && !isSymbolicLink(file)) {
+              nextLevelDirs.add(file);
+            }
+          }
+          else if(filter.test(file)) {
+            return file;
+          }
+        }
+      }
+      levelDirs = nextLevelDirs;
+    }
+    return null;
+  }
+
+  private boolean isSymbolicLink(Path file) throws IOException
+  {
+    return fileSystem.provider().readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isSymbolicLink();
+  }
+
   public List<Path> findFilesByExtension(Path dir, String extension) throws IOException
+  {
+    return findFilesByExtension(dir, extension, new ProgressMeter(null));
+  }
+
+  /**
+   * Find files by extension reporting visited files to progress meter. Final statistics are returned by
+   * {@link ProgressMeter#finish()}, that is idempotent.
+   */
+  public List<Path> findFilesByExtension(Path dir, String extension, ProgressMeter meter) throws IOException
   {
     List<Path> files = new ArrayList<>();
     walkFileTree(dir, new SimpleFileVisitor<Path>()
@@ -391,14 +1478,32 @@ public class FilesUtil
         if(hasExtension(file, extension)) {
           files.add(file);
         }
+        meter.add(1, 0);
         return FileVisitResult.CONTINUE;
       }
     });
+    meter.finish();
     return files;
   }
 
+  public Stream<Path> streamFilesByExtension(Path dir, String extension) throws IOException
+  {
+    // files are yielded while tree walk progresses; walker handles are released when stream is closed
+    return Files.find(dir, Integer.MAX_VALUE, (file, attrs) -> !attrs.isDirectory() && hasExtension(file, extension));
+  }
+
   public List<Path> findFilesByContentPattern(Path dir, String extension, String pattern) throws IOException
   {
+    return findFilesByContentPattern(dir, extension, pattern, new ProgressMeter(null));
+  }
+
+  /**
+   * Content search reporting scanned files and bytes to progress meter. Final statistics are returned by
+   * {@link ProgressMeter#finish()}, that is idempotent.
+   */
+  public List<Path> findFilesByContentPattern(Path dir, String extension, String pattern, ProgressMeter meter) throws IOException
+  {
+    ContentMatcher matcher = new ContentMatcher(pattern);
     List<Path> files = new ArrayList<>();
     walkFileTree(dir, new SimpleFileVisitor<Path>()
     {
@@ -406,16 +1511,134 @@ public class FilesUtil
       public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
       {
         if(hasExtension(file, extension)) {
-          if(Strings.load(getReader(file)).contains(pattern)) {
+          if(hasContentPattern(file, matcher)) {
             files.add(file);
           }
+          meter.add(1, attrs.size());
         }
         return FileVisitResult.CONTINUE;
       }
     });
+    meter.finish();
+    return files;
+  }
+
+  public List<Path> findFilesByContentPattern(Path dir, String extension, String pattern, int parallelism) throws IOException
+  {
+    return findFilesByContentPattern(dir, extension, pattern, parallelism, new ProgressMeter(null));
+  }
+
+  /**
+   * Parallel content search reporting scanned files and bytes to progress meter. Candidate files are discovered by tree
+   * walk ahead of workers so remaining time is estimated even without expected totals. Final statistics are returned by
+   * {@link ProgressMeter#finish()}, that is idempotent.
+   */
+  public List<Path> findFilesByContentPattern(Path dir, String extension, String pattern, int parallelism, ProgressMeter meter) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    ContentMatcher matcher = new ContentMatcher(pattern);
+    Queue<Path> foundFiles = new ConcurrentLinkedQueue<>();
+    Failures failures = new Failures();
+
+    // bounded hand over queue; when workers fall behind the tree walking thread scans the file itself instead of queuing
+    // an unbounded backlog of candidate files
+    ExecutorService executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(SEARCH_QUEUE_FACTOR * parallelism), new ThreadPoolExecutor.CallerRunsPolicy());
+    try {
+      // tree walking thread only filters by extension and hands over candidate files to workers
+      walkFileTree(dir, new SimpleFileVisitor<Path>()
+      {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+        {
+          if(hasExtension(file, extension)) {
+            long size = attrs.size();
+            meter.discover(1, size);
+            executor.execute(() -> {
+              try {
+                if(hasContentPattern(file, matcher)) {
+                  foundFiles.add(file);
+                }
+                meter.add(1, size);
+              }
+              catch(IOException | RuntimeException e) {
+                // a failure swallowed by the pool would silently drop the file from search results
+                failures.add(e);
+              }
+            });
+          }
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      awaitTermination(executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    meter.finish();
+    failures.throwIfAny(Strings.format("Fail to search content pattern %s on %s.", pattern, dir));
+
+    List<Path> files = new ArrayList<>(foundFiles);
+    Collections.sort(files);
     return files;
   }
 
+  public List<Path> findFilesByContentPattern(Path dir, String extension, String pattern, Path indexFile) throws IOException
+  {
+    ContentIndex index = new ContentIndex(this, dir, indexFile);
+    index.load();
+    List<Path> files = index.find(extension, pattern);
+    index.save();
+    return files;
+  }
+
+  /** Print from parallel workers; console implementations are not required to be thread safe. */
+  private void print(String format, Object... args)
+  {
+    synchronized(console) {
+      console.print(format, args);
+    }
+  }
+
+  static void awaitTermination(ExecutorService executor) throws IOException
+  {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for workers.");
+    }
+  }
+
+  public boolean hasContentPattern(Path file, String pattern) throws IOException
+  {
+    return hasContentPattern(file, new ContentMatcher(pattern));
+  }
+
+  boolean hasContentPattern(Path file, ContentMatcher matcher) throws IOException
+  {
+    if(isLocalFile(file)) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        return matcher.matches(channel);
+      }
+    }
+    try (InputStream inputStream = getInputStream(file)) {
+      return matcher.matches(inputStream);
+    }
+  }
+
+  /**
+   * Test if path is on operating system file system, possibly wrapped by {@link CountingFileSystem}, so that file
+   * channels are backed by real files.
+   */
+  private static boolean isLocalFile(Path path)
+  {
+    return LOCAL_FILE_SCHEME.equals(CountingFileSystem.unwrap(path).getFileSystem().provider().getScheme());
+  }
+
   public void setLastModifiedTime(Path file, FileTime time) throws IOException
   {
     Files.setLastModifiedTime(file, time);
@@ -0,0 +1,212 @@
+package com.jslib.commons.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache for file content digests, consulted by {@link FilesUtil#digest(Path)} when configured with
+ * {@link FilesUtil#setHashCache(HashCache)}. Every entry keeps the digest together with file size and modification time
+ * it was computed from; a cached digest is used only while file size and modification time are unchanged.
+ * <p>
+ * Cache file is an append-only log: {@link #save()} appends only entries added since last save, last record for a path
+ * winning. When obsolete records outnumber live entries the log is compacted, that is, atomically rewritten with live
+ * entries only, dropping entries for files that no longer exist. Missing, corrupt or foreign cache file is silently
+ * discarded and rewritten on next save.
+ * <p>
+ * As with {@link ContentIndex}, digests computed too close to file modification time are considered racy and not used,
+ * since a change on the same file system clock tick would go unnoticed.
+ */
+public class HashCache
+{
+  private static final int MAGIC = 0x4A534843;
+  private static final int VERSION = 1;
+
+  /** Maximum file system time stamp resolution, in milliseconds. */
+  private static final long RACY_INTERVAL = 2000;
+  /** Do not bother to compact small logs. */
+  private static final int MIN_COMPACT_RECORDS = 1024;
+
+  private final FilesUtil files;
+  private final Path cacheFile;
+
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<String, Entry> pendingEntries = new ConcurrentHashMap<>();
+  /** Number of records from cache file log, including obsolete ones. */
+  private int recordsCount;
+  /** Cache file log was read up to a clean end and new records can be appended to it. */
+  private boolean appendable;
+
+  public HashCache(FilesUtil files, Path cacheFile)
+  {
+    this.files = files;
+    this.cacheFile = cacheFile;
+  }
+
+  public synchronized void load()
+  {
+    entries.clear();
+    pendingEntries.clear();
+    recordsCount = 0;
+    appendable = false;
+    if(!files.exists(cacheFile)) {
+      return;
+    }
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(files.getInputStream(cacheFile)))) {
+      if(inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION) {
+        return;
+      }
+      // lengths read from log are checked before allocating; a corrupt length is not allowed to exhaust memory
+      long fileSize = files.getFileSystem().provider().readAttributes(cacheFile, BasicFileAttributes.class).size();
+      int length;
+      while((length = readLength(inputStream)) != -1) {
+        byte[] path = new byte[checkLength(length, fileSize)];
+        inputStream.readFully(path);
+        Entry entry = new Entry(VarInt.readLong(inputStream), VarInt.unZigZag(VarInt.readLong(inputStream)), VarInt.unZigZag(VarInt.readLong(inputStream)));
+        entry.digest = new byte[checkLength(VarInt.readInt(inputStream), fileSize)];
+        inputStream.readFully(entry.digest);
+        entries.put(new String(path, StandardCharsets.UTF_8), entry);
+        ++recordsCount;
+      }
+      appendable = true;
+    }
+    catch(EOFException unused) {
+      // truncated record from an interrupted save; keep records read so far and rewrite log on save
+    }
+    catch(IOException | RuntimeException unused) {
+      entries.clear();
+      recordsCount = 0;
+    }
+  }
+
+  public synchronized void save() throws IOException
+  {
+    if(pendingEntries.isEmpty()) {
+      return;
+    }
+    Map<String, Entry> savedEntries = new HashMap<>(pendingEntries);
+    for(Map.Entry<String, Entry> savedEntry : savedEntries.entrySet()) {
+      // an entry put concurrently with save stays pending
+      pendingEntries.remove(savedEntry.getKey(), savedEntry.getValue());
+    }
+    entries.putAll(savedEntries);
+
+    int totalRecordsCount = recordsCount + savedEntries.size();
+    if(!appendable || !files.exists(cacheFile) || (totalRecordsCount > MIN_COMPACT_RECORDS && totalRecordsCount > 2 * entries.size())) {
+      compact();
+      return;
+    }
+
+    try (DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(files.getFileSystem().provider().newOutputStream(cacheFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)))) {
+      write(outputStream, savedEntries);
+    }
+    recordsCount = totalRecordsCount;
+  }
+
+  public int size()
+  {
+    Map<String, Entry> allEntries = new HashMap<>(entries);
+    allEntries.putAll(pendingEntries);
+    return allEntries.size();
+  }
+
+  byte[] get(String path, long size, long modificationTime)
+  {
+    Entry entry = pendingEntries.get(path);
+    if(entry == null) {
+      entry = entries.get(path);
+    }
+    if(entry == null || entry.size != size || entry.modificationTime != modificationTime || entry.isRacy()) {
+      return null;
+    }
+    return entry.digest.clone();
+  }
+
+  void put(String path, long size, long modificationTime, byte[] digest)
+  {
+    Entry entry = new Entry(size, modificationTime, System.currentTimeMillis());
+    entry.digest = digest.clone();
+    pendingEntries.put(path, entry);
+  }
+
+  private void compact() throws IOException
+  {
+    entries.keySet().removeIf(path -> !files.exists(files.getFileSystem().getPath(path)));
+
+    files.createDirectories(cacheFile.getParent());
+    try (AtomicOutputStream stream = files.getAtomicOutputStream(cacheFile)) {
+      DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(stream));
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(VERSION);
+      write(outputStream, entries);
+      outputStream.flush();
+      stream.commit();
+    }
+    recordsCount = entries.size();
+    appendable = true;
+  }
+
+  private static void write(DataOutputStream outputStream, Map<String, Entry> entries) throws IOException
+  {
+    for(Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+      Entry entry = mapEntry.getValue();
+      byte[] path = mapEntry.getKey().getBytes(StandardCharsets.UTF_8);
+      VarInt.write(outputStream, path.length);
+      outputStream.write(path);
+      VarInt.write(outputStream, entry.size);
+      VarInt.write(outputStream, VarInt.zigZag(entry.modificationTime));
+      VarInt.write(outputStream, VarInt.zigZag(entry.hashingTime));
+      VarInt.write(outputStream, entry.digest.length);
+      outputStream.write(entry.digest);
+    }
+  }
+
+  /** Read record path length or -1 on clean end of log. */
+  private static int readLength(DataInputStream inputStream) throws IOException
+  {
+    inputStream.mark(1);
+    if(inputStream.read() == -1) {
+      return -1;
+    }
+    inputStream.reset();
+    return VarInt.readInt(inputStream);
+  }
+
+  private static int checkLength(int length, long fileSize) throws IOException
+  {
+    if(length < 0 || length > fileSize) {
+      throw new IOException("Corrupt record length.");
+    }
+    return length;
+  }
+
+  private static class Entry
+  {
+    final long size;
+    final long modificationTime;
+    final long hashingTime;
+    byte[] digest;
+
+    Entry(long size, long modificationTime, long hashingTime)
+    {
+      this.size = size;
+      this.modificationTime = modificationTime;
+      this.hashingTime = hashingTime;
+    }
+
+    boolean isRacy()
+    {
+      return hashingTime - modificationTime <= RACY_INTERVAL;
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.jslib.commons.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per operation I/O counters collected by {@link CountingFileSystem}. For every operation keeps calls count, total
+ * latency and a latency histogram with power of two nanoseconds buckets; read and write operations count transferred
+ * bytes too. All counters are contention free and safe to update from concurrent workers.
+ */
+public class IoStats
+{
+  public enum Operation
+  {
+    /** File attributes read or access check. */
+    STAT,
+    /** File open for read or write, including channels. */
+    OPEN,
+    /** Read call on opened file; bytes count is the number of bytes read. */
+    READ,
+    /** Write call on opened file; bytes count is the number of bytes written. */
+    WRITE,
+    /** Directory listing open. */
+    LIST,
+    /** File or directory delete. */
+    DELETE,
+    /** Directory or link creation. */
+    CREATE,
+    /** File copy, done by provider. */
+    COPY,
+    /** File move or rename. */
+    MOVE
+  }
+
+  private static final int BUCKETS_COUNT = 64;
+
+  private final LongAdder[] counts;
+  private final LongAdder[] nanos;
+  private final LongAdder[] bytes;
+  private final AtomicLongArray[] histograms;
+
+  public IoStats()
+  {
+    int operationsCount = Operation.values().length;
+    counts = new LongAdder[operationsCount];
+    nanos = new LongAdder[operationsCount];
+    bytes = new LongAdder[operationsCount];
+    histograms = new AtomicLongArray[operationsCount];
+    for(int i = 0; i < operationsCount; ++i) {
+      counts[i] = new LongAdder();
+      nanos[i] = new LongAdder();
+      bytes[i] = new LongAdder();
+      histograms[i] = new AtomicLongArray(BUCKETS_COUNT);
+    }
+  }
+
+  /**
+   * Record operation latency measured from given start time.
+   *
+   * @param operation counted operation,
+   * @param startTime operation start time, as returned by {@link System#nanoTime()}.
+   */
+  void record(Operation operation, long startTime)
+  {
+    record(operation, startTime, 0);
+  }
+
+  void record(Operation operation, long startTime, long bytesCount)
+  {
+    long latency = Math.max(0, System.nanoTime() - startTime);
+    int index = operation.ordinal();
+    counts[index].increment();
+    nanos[index].add(latency);
+    if(bytesCount > 0) {
+      bytes[index].add(bytesCount);
+    }
+    histograms[index].incrementAndGet(bucket(latency));
+  }
+
+  public long getCount(Operation operation)
+  {
+    return counts[operation.ordinal()].sum();
+  }
+
+  public long getTotalNanos(Operation operation)
+  {
+    return nanos[operation.ordinal()].sum();
+  }
+
+  public long getBytes(Operation operation)
+  {
+    return bytes[operation.ordinal()].sum();
+  }
+
+  /**
+   * Get approximated latency percentile from operation histogram. Returned value is the upper bound of the bucket
+   * containing requested percentile, so it is accurate within a factor of two.
+   *
+   * @param operation counted operation,
+   * @param percentile percentile, in range (0, 100].
+   * @return latency percentile, in nanoseconds, or 0 if operation was not invoked.
+   */
+  public long getPercentileNanos(Operation operation, double percentile)
+  {
+    AtomicLongArray histogram = histograms[operation.ordinal()];
+    long total = 0;
+    for(int i = 0; i < BUCKETS_COUNT; ++i) {
+      total += histogram.get(i);
+    }
+    if(total == 0) {
+      return 0;
+    }
+
+    long rank = (long)Math.ceil(total * percentile / 100);
+    long count = 0;
+    for(int i = 0; i < BUCKETS_COUNT; ++i) {
+      count += histogram.get(i);
+      if(count >= rank) {
+        return i < 63 ? 1L << i : Long.MAX_VALUE;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Get latency histogram for operation. Bucket <code>i</code> counts calls with latency in range
+   * <code>[2^(i-1), 2^i)</code> nanoseconds; bucket 0 is for zero latency.
+   *
+   * @param operation counted operation.
+   * @return histogram snapshot.
+   */
+  public long[] getHistogram(Operation operation)
+  {
+    AtomicLongArray histogram = histograms[operation.ordinal()];
+    long[] snapshot = new long[BUCKETS_COUNT];
+    for(int i = 0; i < BUCKETS_COUNT; ++i) {
+      snapshot[i] = histogram.get(i);
+    }
+    return snapshot;
+  }
+
+  /**
+   * Format counters as a table with one line per invoked operation, suitable for console print.
+   *
+   * @return report lines, header included.
+   */
+  public List<String> report()
+  {
+    List<String> lines = new ArrayList<>();
+    lines.add(String.format("%-8s %10s %12s %10s %10s %10s %14s", "op", "calls", "total ms", "p50 us", "p99 us", "max us", "bytes"));
+    for(Operation operation : Operation.values()) {
+      long count = getCount(operation);
+      if(count == 0) {
+        continue;
+      }
+      lines.add(String.format("%-8s %10d %12.3f %10.1f %10.1f %10.1f %14d", operation.name().toLowerCase(), count, getTotalNanos(operation) / 1e6, micros(getPercentileNanos(operation, 50)), micros(getPercentileNanos(operation, 99)), micros(getPercentileNanos(operation, 100)), getBytes(operation)));
+    }
+    return lines;
+  }
+
+  private static double micros(long nanos)
+  {
+    return nanos / (double)TimeUnit.MICROSECONDS.toNanos(1);
+  }
+
+  private static int bucket(long latency)
+  {
+    return 64 - Long.numberOfLeadingZeros(latency);
+  }
+}
@@ -0,0 +1,175 @@
+package com.jslib.commons.cli;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread safe files and bytes counter for bulk operations, reporting {@link BulkStats} samples to an optional progress
+ * listener. Samples are taken at most once per sample interval, whatever the number of workers, so that reporting cost
+ * does not depend on the number of processed files; counting itself is a contention free increment.
+ * <p>
+ * Meter is single use: pass a new instance to every bulk operation. Operation invokes {@link #finish()} on completion,
+ * which reports and returns final statistics.
+ *
+ * <pre>
+ * ProgressMeter meter = new ProgressMeter(stats -&gt; console.print("%d files, %.1f MB/s", stats.getFilesCount(), stats.getBytesRate() / 1e6));
+ * BulkStats stats = files.copyFiles(sourceDir, targetDir, false, 4, CopyStrategy.COPY, meter);
+ * </pre>
+ */
+public class ProgressMeter
+{
+  private static final long DEFAULT_SAMPLE_INTERVAL = 500;
+
+  private final IProgress<BulkStats> progress;
+  private final long sampleIntervalNanos;
+  private final long startTime;
+
+  private final LongAdder filesCount = new LongAdder();
+  private final LongAdder bytesCount = new LongAdder();
+  private final AtomicLong nextSampleTime;
+
+  private volatile long expectedFilesCount = -1;
+  private volatile long expectedBytesCount = -1;
+
+  /** Totals discovered by operation ahead of processing, used for estimation if expected totals are not set. */
+  private final LongAdder discoveredFilesCount = new LongAdder();
+  private final LongAdder discoveredBytesCount = new LongAdder();
+
+  /** Counters and time of previous sample, guarded by this meter instance. */
+  private long sampleTime;
+  private long sampleFilesCount;
+  private long sampleBytesCount;
+
+  private BulkStats finalStats;
+
+  public ProgressMeter(IProgress<BulkStats> progress)
+  {
+    this(progress, DEFAULT_SAMPLE_INTERVAL);
+  }
+
+  /**
+   * Create progress meter reporting to progress listener.
+   *
+   * @param progress progress listener, null if only final statistics are of interest,
+   * @param sampleIntervalMillis minimum interval between two samples, in milliseconds.
+   */
+  public ProgressMeter(IProgress<BulkStats> progress, long sampleIntervalMillis)
+  {
+    this.progress = progress;
+    this.sampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMillis);
+    this.startTime = System.nanoTime();
+    this.sampleTime = startTime;
+    this.nextSampleTime = new AtomicLong(startTime + sampleIntervalNanos);
+  }
+
+  /**
+   * Set expected totals, if known, used to estimate remaining time. Bytes total takes precedence on estimation; use -1
+   * for unknown totals. Expected totals can be computed upfront with {@link FilesUtil#diskUsage(java.nio.file.Path, int)}.
+   *
+   * @param filesCount expected number of files,
+   * @param bytesCount expected number of bytes.
+   */
+  public void setExpected(long filesCount, long bytesCount)
+  {
+    this.expectedFilesCount = filesCount;
+    this.expectedBytesCount = bytesCount;
+  }
+
+  /**
+   * Record files found by operation but not yet processed. Operations that list directories ahead of processing report
+   * discovered files so that remaining time can be estimated without expected totals; this estimate is a lower bound.
+   *
+   * @param files number of discovered files,
+   * @param bytes total size of discovered files.
+   */
+  void discover(long files, long bytes)
+  {
+    discoveredFilesCount.add(files);
+    discoveredBytesCount.add(bytes);
+  }
+
+  void add(long files, long bytes)
+  {
+    filesCount.add(files);
+    bytesCount.add(bytes);
+    if(progress == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    long scheduledTime = nextSampleTime.get();
+    // only the thread winning the race for current sample reports it
+    if(now >= scheduledTime && nextSampleTime.compareAndSet(scheduledTime, now + sampleIntervalNanos)) {
+      progress.onProgress(sample(now));
+    }
+  }
+
+  public synchronized BulkStats finish()
+  {
+    if(finalStats == null) {
+      long now = System.nanoTime();
+      long elapsedNanos = Math.max(1, now - startTime);
+      long files = filesCount.sum();
+      long bytes = bytesCount.sum();
+      finalStats = new BulkStats(files, bytes, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rate(files, elapsedNanos), rate(bytes, elapsedNanos), 0, true);
+      if(progress != null) {
+        progress.onProgress(finalStats);
+      }
+    }
+    return finalStats;
+  }
+
+  /**
+   * Get final statistics or current counters, with average rates, if operation is still running.
+   *
+   * @return operation statistics.
+   */
+  public synchronized BulkStats getStats()
+  {
+    if(finalStats != null) {
+      return finalStats;
+    }
+    long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+    long files = filesCount.sum();
+    long bytes = bytesCount.sum();
+    return new BulkStats(files, bytes, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), rate(files, elapsedNanos), rate(bytes, elapsedNanos), remainingMillis(files, bytes, elapsedNanos), false);
+  }
+
+  private synchronized BulkStats sample(long now)
+  {
+    long files = filesCount.sum();
+    long bytes = bytesCount.sum();
+    long intervalNanos = Math.max(1, now - sampleTime);
+    BulkStats stats = new BulkStats(files, bytes, TimeUnit.NANOSECONDS.toMillis(now - startTime), rate(files - sampleFilesCount, intervalNanos), rate(bytes - sampleBytesCount, intervalNanos), remainingMillis(files, bytes, Math.max(1, now - startTime)), false);
+    sampleTime = now;
+    sampleFilesCount = files;
+    sampleBytesCount = bytes;
+    return stats;
+  }
+
+  /**
+   * Estimate remaining time from average rate, that is more stable than last interval rate. Expected totals are used if
+   * set, otherwise totals discovered so far, if any.
+   */
+  private long remainingMillis(long files, long bytes, long elapsedNanos)
+  {
+    long expectedBytes = expectedBytesCount;
+    long expectedFiles = expectedFilesCount;
+    if(expectedBytes < 0 && expectedFiles < 0) {
+      expectedBytes = discoveredBytesCount.sum();
+      expectedFiles = discoveredFilesCount.sum();
+    }
+    if(expectedBytes > 0 && bytes > 0) {
+      return TimeUnit.NANOSECONDS.toMillis((long)(Math.max(0, expectedBytes - bytes) * ((double)elapsedNanos / bytes)));
+    }
+    if(expectedFiles > 0 && files > 0) {
+      return TimeUnit.NANOSECONDS.toMillis((long)(Math.max(0, expectedFiles - files) * ((double)elapsedNanos / files)));
+    }
+    return -1;
+  }
+
+  private static double rate(long count, long nanos)
+  {
+    return count * 1e9 / nanos;
+  }
+}
@@ -0,0 +1,48 @@
+package com.jslib.commons.cli;
+
+/**
+ * Counters collected by a directories synchronization. Deleted count includes both orphan files and orphan directories
+ * removed from target.
+ */
+public class SyncResult
+{
+  private int copiedCount;
+  private int skippedCount;
+  private int deletedCount;
+
+  void incrementCopiedCount()
+  {
+    ++copiedCount;
+  }
+
+  void incrementSkippedCount()
+  {
+    ++skippedCount;
+  }
+
+  void incrementDeletedCount()
+  {
+    ++deletedCount;
+  }
+
+  public int getCopiedCount()
+  {
+    return copiedCount;
+  }
+
+  public int getSkippedCount()
+  {
+    return skippedCount;
+  }
+
+  public int getDeletedCount()
+  {
+    return deletedCount;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "SyncResult [copiedCount=" + copiedCount + ", skippedCount=" + skippedCount + ", deletedCount=" + deletedCount + "]";
+  }
+}
@@ -18,6 +18,8 @@ public abstract class Task implements Runnable
       "-x", "--exception"
   }, description = "Print stack trace on exception.")
   private boolean stacktrace;
+  @Option(names = "--io-stats", description = "Count file system operations and print their latencies. Default: ${DEFAULT-VALUE}.", defaultValue = "false")
+  private boolean ioStats;
 
   protected IConsole console;
   protected IConfig config;
@@ -62,6 +64,13 @@ public abstract class Task implements Runnable
   @Override
   public void run()
   {
+    CountingFileSystem countingFileSystem = null;
+    if(ioStats) {
+      // wrap file system in place so that files utility subclass and its state, e.g. caches, are preserved
+      countingFileSystem = new CountingFileSystem(files.getFileSystem());
+      files.setFileSystem(countingFileSystem);
+    }
+
     long start = System.nanoTime();
     ExitCode exitCode = ExitCode.SUCCESS;
     try {
@@ -78,6 +87,11 @@ public abstract class Task implements Runnable
     if(time) {
       console.print("Processing time: %.04f msec.", (System.nanoTime() - start) / 1000000.0);
     }
+    if(countingFileSystem != null) {
+      for(String line : countingFileSystem.getStats().report()) {
+        console.print("%s", line);
+      }
+    }
     System.exit(exitCode.ordinal());
   }
 
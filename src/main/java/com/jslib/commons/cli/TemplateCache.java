@@ -0,0 +1,210 @@
+package com.jslib.commons.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.exception.ParseErrorException;
+import org.apache.velocity.runtime.RuntimeServices;
+import org.apache.velocity.runtime.RuntimeSingleton;
+import org.apache.velocity.runtime.parser.ParseException;
+
+/**
+ * Least recently used cache for compiled Velocity templates loaded from template archives. A cached template is keyed
+ * by archive path, archive modification time and entry name, so that updating an archive makes its stale templates
+ * unreachable; they are evicted as least recently used. Cache is bounded by entries count and by total template source
+ * size, in characters, used as an estimate of parsed tree size.
+ * <p>
+ * Compiled templates are immutable after initialization and can be merged concurrently, with different contexts.
+ */
+public class TemplateCache
+{
+  private final int maxEntries;
+  private final long maxSize;
+
+  /** Access ordered map, guarded by this cache instance. */
+  private final LinkedHashMap<Key, CachedTemplate> templates = new LinkedHashMap<>(16, 0.75F, true);
+  private long size;
+
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Create template cache with given bounds.
+   *
+   * @param maxEntries maximum number of cached templates,
+   * @param maxSize maximum total size of cached templates source, in characters.
+   */
+  public TemplateCache(int maxEntries, long maxSize)
+  {
+    this.maxEntries = maxEntries;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get compiled template for archive entry, compiling it from reader on cache miss. Reader is not read, nor closed, on
+   * cache hit.
+   *
+   * @param archive template archive file,
+   * @param archiveTime archive last modification time,
+   * @param entryName archive entry name, also used as template name on error messages,
+   * @param reader entry content reader.
+   * @return compiled template.
+   * @throws IOException if reader fails.
+   * @throws ParseErrorException if template source is not valid.
+   */
+  public Template get(File archive, long archiveTime, String entryName, Reader reader) throws IOException
+  {
+    Key key = new Key(archive.getAbsolutePath(), archiveTime, entryName);
+    synchronized(this) {
+      CachedTemplate cached = templates.get(key);
+      if(cached != null) {
+        hitCount.incrementAndGet();
+        return cached.template;
+      }
+    }
+    missCount.incrementAndGet();
+
+    // compile outside lock; concurrent misses on the same key compile twice and the last one wins
+    String source = load(reader);
+    Template template = compile(entryName, source);
+    put(key, new CachedTemplate(template, source.length()));
+    return template;
+  }
+
+  public synchronized int size()
+  {
+    return templates.size();
+  }
+
+  public long getHitCount()
+  {
+    return hitCount.get();
+  }
+
+  public long getMissCount()
+  {
+    return missCount.get();
+  }
+
+  public synchronized void clear()
+  {
+    templates.clear();
+    size = 0;
+  }
+
+  private synchronized void put(Key key, CachedTemplate template)
+  {
+    CachedTemplate previous = templates.put(key, template);
+    if(previous != null) {
+      size -= previous.size;
+    }
+    size += template.size;
+
+    Iterator<CachedTemplate> iterator = templates.values().iterator();
+    while(iterator.hasNext() && (templates.size() > maxEntries || size > maxSize)) {
+      size -= iterator.next().size;
+      iterator.remove();
+    }
+  }
+
+  static Template compile(String name, Reader reader) throws IOException
+  {
+    return compile(name, load(reader));
+  }
+
+  /**
+   * Parse template source and initialize its syntax tree on Velocity singleton runtime, the same runtime used by
+   * {@link org.apache.velocity.app.Velocity#evaluate(org.apache.velocity.context.Context, java.io.Writer, String, Reader)}.
+   *
+   * @param name template name used on error messages,
+   * @param source template source.
+   * @return compiled template, ready for merge.
+   * @throws ParseErrorException if template source is not valid.
+   */
+  static Template compile(String name, String source)
+  {
+    RuntimeServices runtime = RuntimeSingleton.getRuntimeServices();
+    Template template = new Template();
+    template.setName(name);
+    template.setRuntimeServices(runtime);
+    try {
+      template.setData(runtime.parse(new StringReader(source), template));
+    }
+    catch(ParseException e) {
+      throw new ParseErrorException(e, name);
+    }
+    template.initDocument();
+    return template;
+  }
+
+  private static String load(Reader reader) throws IOException
+  {
+    StringBuilder builder = new StringBuilder();
+    char[] buffer = new char[2048];
+    int len;
+    while((len = reader.read(buffer)) > 0) {
+      builder.append(buffer, 0, len);
+    }
+    return builder.toString();
+  }
+
+  private static class CachedTemplate
+  {
+    final Template template;
+    final long size;
+
+    CachedTemplate(Template template, long size)
+    {
+      this.template = template;
+      this.size = size;
+    }
+  }
+
+  private static class Key
+  {
+    final String archive;
+    final long archiveTime;
+    final String entryName;
+
+    Key(String archive, long archiveTime, String entryName)
+    {
+      this.archive = archive;
+      this.archiveTime = archiveTime;
+      this.entryName = entryName;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      final int prime = 31;
+      int result = 1;
+      result = prime * result + archive.hashCode();
+      result = prime * result + (int)(archiveTime ^ (archiveTime >>> 32));
+      result = prime * result + entryName.hashCode();
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if(this == obj) return true;
+      if(obj == null) return false;
+      if(getClass() != obj.getClass()) return false;
+      Key other = (Key)obj;
+      return archiveTime == other.archiveTime && archive.equals(other.archive) && entryName.equals(other.entryName);
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Key [archive=" + archive + ", archiveTime=" + archiveTime + ", entryName=" + entryName + "]";
+    }
+  }
+}
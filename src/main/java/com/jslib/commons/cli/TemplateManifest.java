@@ -0,0 +1,317 @@
+package com.jslib.commons.cli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.jslib.util.Strings;
+
+/**
+ * Precomputed description of a template archive: archive entries in archive order, each with its parsed flag and
+ * variable slots from entry name. A template executed from a cached manifest can validate variables before writing any
+ * output without reading archive central directory. Entries are not classified as directory, template or static file
+ * here; classification is done on entry name with variables injected, see {@link TemplateProcessor}.
+ * <p>
+ * Manifest is cached in a file chosen by caller, usually outside templates directory. It is keyed by archive content
+ * checksum; archive size and modification time are recorded too so that checksum is computed only when they change,
+ * except for racy manifests, created too close to archive modification time. Missing, corrupt or stale manifest is
+ * rebuilt; failing to save it is not an error.
+ */
+class TemplateManifest
+{
+  private static final int MAGIC = 0x4A53544D;
+  private static final int VERSION = 2;
+
+  /** Maximum file system time stamp resolution, in milliseconds. */
+  private static final long RACY_INTERVAL = 2000;
+  private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}]+)\\}");
+
+  private static final int FLAG = 0x01;
+
+  private final long archiveSize;
+  private final long archiveTime;
+  private final long creationTime;
+  private final byte[] checksum;
+  private final List<Entry> entries;
+
+  private TemplateManifest(long archiveSize, long archiveTime, long creationTime, byte[] checksum, List<Entry> entries)
+  {
+    this.archiveSize = archiveSize;
+    this.archiveTime = archiveTime;
+    this.creationTime = creationTime;
+    this.checksum = checksum;
+    this.entries = entries;
+  }
+
+  /**
+   * Load cached manifest for template archive, rebuilding and saving it if missing or stale.
+   *
+   * @param files files utility,
+   * @param templateFile template archive,
+   * @param manifestFile manifest cache file, created if missing.
+   * @return template archive manifest.
+   * @throws IOException if template archive reading fails.
+   */
+  public static TemplateManifest load(FilesUtil files, Path templateFile, Path manifestFile) throws IOException
+  {
+    BasicFileAttributes attributes = files.getFileSystem().provider().readAttributes(templateFile, BasicFileAttributes.class);
+    long archiveSize = attributes.size();
+    long archiveTime = attributes.lastModifiedTime().toMillis();
+
+    TemplateManifest manifest = read(files, manifestFile);
+    if(manifest != null && manifest.archiveSize == archiveSize && manifest.archiveTime == archiveTime && !manifest.isRacy()) {
+      return manifest;
+    }
+
+    byte[] checksum = files.digest(templateFile);
+    List<Entry> entries;
+    if(manifest != null && Arrays.equals(manifest.checksum, checksum)) {
+      // archive touched or copied but with the same content
+      entries = manifest.entries;
+    }
+    else {
+      try (ZipFile zipFile = new ZipFile(templateFile.toFile())) {
+        entries = scanEntries(zipFile);
+      }
+    }
+
+    manifest = new TemplateManifest(archiveSize, archiveTime, System.currentTimeMillis(), checksum, entries);
+    try {
+      manifest.save(files, manifestFile);
+    }
+    catch(IOException unused) {
+      // manifest is only an optimization; manifests directory may be read-only
+    }
+    return manifest;
+  }
+
+  /**
+   * Create manifest for an opened archive, without caching it.
+   *
+   * @param zipFile opened template archive.
+   * @return template archive manifest.
+   * @throws IOException if an archive entry name is not valid.
+   */
+  public static TemplateManifest scan(ZipFile zipFile) throws IOException
+  {
+    return new TemplateManifest(-1, -1, -1, new byte[0], scanEntries(zipFile));
+  }
+
+  private static List<Entry> scanEntries(ZipFile zipFile) throws IOException
+  {
+    List<Entry> entries = new ArrayList<>();
+    Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
+    while(zipEntries.hasMoreElements()) {
+      entries.add(Entry.parse(zipEntries.nextElement().getName()));
+    }
+    return Collections.unmodifiableList(entries);
+  }
+
+  public List<Entry> getEntries()
+  {
+    return entries;
+  }
+
+  /** Get entries keyed by archive entry name, for lookup while streaming archive. */
+  public Map<String, Entry> getEntriesByName()
+  {
+    Map<String, Entry> entriesByName = new HashMap<>();
+    for(Entry entry : entries) {
+      entriesByName.put(entry.zipEntryName, entry);
+    }
+    return entriesByName;
+  }
+
+  /**
+   * Check that all variables used by names of included entries are defined. Entries excluded by flag are not checked.
+   *
+   * @param variables template variables.
+   * @throws IOException if there are missing variables; exception message lists all of them.
+   */
+  public void checkVariables(Map<String, String> variables) throws IOException
+  {
+    Set<String> missingVariables = new TreeSet<>();
+    for(Entry entry : entries) {
+      if(entry.isExcluded(variables)) {
+        continue;
+      }
+      for(String variable : entry.variables) {
+        if(!variables.containsKey(variable)) {
+          missingVariables.add(variable);
+        }
+      }
+    }
+    if(!missingVariables.isEmpty()) {
+      throw new IOException(Strings.format("Missing template variables %s.", missingVariables));
+    }
+  }
+
+  private boolean isRacy()
+  {
+    return creationTime - archiveTime <= RACY_INTERVAL;
+  }
+
+  private void save(FilesUtil files, Path manifestFile) throws IOException
+  {
+    files.createDirectories(manifestFile.getParent());
+    try (AtomicOutputStream stream = files.getAtomicOutputStream(manifestFile)) {
+      DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(stream));
+      outputStream.writeInt(MAGIC);
+      outputStream.writeInt(VERSION);
+      VarInt.write(outputStream, archiveSize);
+      VarInt.write(outputStream, VarInt.zigZag(archiveTime));
+      VarInt.write(outputStream, VarInt.zigZag(creationTime));
+      VarInt.write(outputStream, checksum.length);
+      outputStream.write(checksum);
+
+      VarInt.write(outputStream, entries.size());
+      for(Entry entry : entries) {
+        writeString(outputStream, entry.zipEntryName);
+        writeString(outputStream, entry.entryName);
+        outputStream.writeByte(entry.flag != null ? FLAG : 0);
+        if(entry.flag != null) {
+          writeString(outputStream, entry.flag);
+        }
+        VarInt.write(outputStream, entry.variables.size());
+        for(String variable : entry.variables) {
+          writeString(outputStream, variable);
+        }
+      }
+      outputStream.flush();
+      stream.commit();
+    }
+  }
+
+  /** Read manifest file or return null if it is missing, corrupt or of a different version. */
+  private static TemplateManifest read(FilesUtil files, Path manifestFile)
+  {
+    if(!files.exists(manifestFile)) {
+      return null;
+    }
+    try (DataInputStream inputStream = new DataInputStream(new BufferedInputStream(files.getInputStream(manifestFile)))) {
+      if(inputStream.readInt() != MAGIC || inputStream.readInt() != VERSION) {
+        return null;
+      }
+      long archiveSize = VarInt.readLong(inputStream);
+      long archiveTime = VarInt.unZigZag(VarInt.readLong(inputStream));
+      long creationTime = VarInt.unZigZag(VarInt.readLong(inputStream));
+      byte[] checksum = new byte[VarInt.readInt(inputStream)];
+      inputStream.readFully(checksum);
+
+      int entriesCount = VarInt.readInt(inputStream);
+      List<Entry> entries = new ArrayList<>(entriesCount);
+      for(int i = 0; i < entriesCount; ++i) {
+        String zipEntryName = readString(inputStream);
+        String entryName = readString(inputStream);
+        int flags = inputStream.readByte();
+        String flag = (flags & FLAG) != 0 ? readString(inputStream) : null;
+        int variablesCount = VarInt.readInt(inputStream);
+        List<String> variables = new ArrayList<>(variablesCount);
+        for(int j = 0; j < variablesCount; ++j) {
+          variables.add(readString(inputStream));
+        }
+        entries.add(new Entry(zipEntryName, entryName, flag, Collections.unmodifiableList(variables)));
+      }
+      return new TemplateManifest(archiveSize, archiveTime, creationTime, checksum, Collections.unmodifiableList(entries));
+    }
+    catch(IOException | RuntimeException unused) {
+      return null;
+    }
+  }
+
+  private static void writeString(DataOutputStream outputStream, String value) throws IOException
+  {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    VarInt.write(outputStream, bytes.length);
+    outputStream.write(bytes);
+  }
+
+  private static String readString(DataInputStream inputStream) throws IOException
+  {
+    byte[] bytes = new byte[VarInt.readInt(inputStream)];
+    inputStream.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parsed template archive entry name. Entry name has the flag removed but variables not yet injected. Flag is the
+   * name of the variable that should be <code>true</code> for entry to be included, or null if entry is not flagged.
+   */
+  static class Entry
+  {
+    final String zipEntryName;
+    final String entryName;
+    final String flag;
+    /** Names of variables used by entry name. */
+    final List<String> variables;
+
+    private Entry(String zipEntryName, String entryName, String flag, List<String> variables)
+    {
+      this.zipEntryName = zipEntryName;
+      this.entryName = entryName;
+      this.flag = flag;
+      this.variables = variables;
+    }
+
+    /**
+     * Parse archive entry name, e.g. <code>${page}~{compo-script}.js.vtl</code>.
+     *
+     * @param zipEntryName archive entry name.
+     * @return parsed entry.
+     * @throws IOException if flag end mark is missing.
+     */
+    static Entry parse(String zipEntryName) throws IOException
+    {
+      String entryName = zipEntryName;
+      String flag = null;
+      int start = zipEntryName.indexOf("~{");
+      if(start != -1) {
+        int end = zipEntryName.indexOf('}', start);
+        if(end == -1) {
+          throw new IOException(Strings.format("Invalid ZIP entery name %s. Missing flag end mark.", zipEntryName));
+        }
+        flag = zipEntryName.substring(start + 2, end);
+        entryName = zipEntryName.substring(0, start) + zipEntryName.substring(end + 1);
+      }
+
+      List<String> variables = new ArrayList<>();
+      Matcher matcher = VARIABLE.matcher(entryName);
+      while(matcher.find()) {
+        if(!variables.contains(matcher.group(1))) {
+          variables.add(matcher.group(1));
+        }
+      }
+      return new Entry(zipEntryName, entryName, flag, Collections.unmodifiableList(variables));
+    }
+
+    /** Entry is excluded if it is flagged and flag variable is not true. */
+    boolean isExcluded(Map<String, String> variables)
+    {
+      return flag != null && !"true".equalsIgnoreCase(variables.get(flag));
+    }
+
+    @Override
+    public String toString()
+    {
+      return "Entry [zipEntryName=" + zipEntryName + ", flag=" + flag + ", variables=" + variables + "]";
+    }
+  }
+}
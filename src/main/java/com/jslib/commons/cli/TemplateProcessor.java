@@ -8,16 +8,30 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.file.FileSystems;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
 import com.jslib.util.Strings;
@@ -26,10 +40,51 @@ public class TemplateProcessor
 {
   private static final String TEMPLATE_EXT = ".vtl";
 
-  private final Map<String, String> excludedFiles = new HashMap<>();
+  /** Compiled templates shared by all processors, for long running processes executing the same templates. */
+  private static final TemplateCache TEMPLATE_CACHE = new TemplateCache(1024, 16 * 1024 * 1024);
 
+  /** Files excluded by flag, by file name, recorded as archive references and rendered only on demand. */
+  private final Map<String, ExcludedFile> excludedFiles = new ConcurrentHashMap<>();
+  /** Optional rendered content of excluded files, access ordered and guarded by itself. */
+  private final LinkedHashMap<String, String> excludedContents = new LinkedHashMap<>(16, 0.75F, true);
+  private long excludedContentsMaxSize;
+  private long excludedContentsSize;
+
+  private IConsole console;
+  private FilesUtil files;
   private File targetDir;
   private boolean verbose;
+  private TemplateCache templateCache;
+  private File manifestDir;
+
+  public TemplateProcessor()
+  {
+    this.console = new Console();
+    this.files = new FilesUtil(FileSystems.getDefault(), this.console);
+    this.templateCache = TEMPLATE_CACHE;
+  }
+
+  /** Create processor for a batch target, sharing parent console, files utility and settings. */
+  private TemplateProcessor(TemplateProcessor parent, File targetDir)
+  {
+    this.console = parent.console;
+    this.files = parent.files;
+    this.verbose = parent.verbose;
+    this.templateCache = parent.templateCache;
+    this.excludedContentsMaxSize = parent.excludedContentsMaxSize;
+    this.manifestDir = parent.manifestDir;
+    this.targetDir = targetDir;
+  }
+
+  public void setConsole(IConsole console)
+  {
+    this.console = console;
+  }
+
+  public void setFiles(FilesUtil files)
+  {
+    this.files = files;
+  }
 
   public void setTargetDir(File targetDir)
   {
@@ -41,67 +96,367 @@ public class TemplateProcessor
     this.verbose = verbose;
   }
 
+  /**
+   * Set compiled templates cache, replacing the default one shared by all processors. Null disables caching, in which
+   * case templates are compiled on every execution.
+   *
+   * @param templateCache compiled templates cache, possible null.
+   */
+  public void setTemplateCache(TemplateCache templateCache)
+  {
+    this.templateCache = templateCache;
+  }
+
+  /**
+   * Enable archive manifests cache for templates from Home templates directory, see {@link TemplateManifest}. Manifests
+   * are stored in given directory, not in templates directory, and used to check template variables before any output
+   * is written. By default manifests are not used.
+   *
+   * @param manifestDir directory for cached manifests, created if missing, null to disable manifests.
+   */
+  public void setManifestDir(File manifestDir)
+  {
+    this.manifestDir = manifestDir;
+  }
+
+  /**
+   * Enable cache for rendered content of excluded files, bounded by total content size, in characters. By default
+   * excluded file content is rendered on every {@link #getExcludedFileReader(String)} read.
+   *
+   * @param maxSize maximum size of cached content, 0 to disable cache.
+   */
+  public void setExcludedFilesCacheSize(long maxSize)
+  {
+    synchronized(excludedContents) {
+      excludedContentsMaxSize = maxSize;
+      evictExcludedContents();
+    }
+  }
+
+  /**
+   * Get reader for a file excluded by flag on last execution, or null if there is no such file. Content is rendered from
+   * template archive when reader is first read; archive changed since execution is reported as IO exception on read.
+   *
+   * @param fileName excluded file name.
+   * @return excluded file reader or null.
+   */
   public Reader getExcludedFileReader(String fileName)
   {
-    String content = excludedFiles.get(fileName);
-    return content != null ? new StringReader(content) : null;
+    ExcludedFile excludedFile = excludedFiles.get(fileName);
+    return excludedFile != null ? new ExcludedFileReader(fileName, excludedFile) : null;
   }
 
+  /**
+   * Execute template from Home templates directory, streaming archive entries. If manifests cache is enabled, variables
+   * used by output paths are checked against archive manifest before any output is written and entry names parsed by
+   * manifest are reused instead of being parsed again while streaming.
+   *
+   * @param type template type,
+   * @param templateName template name,
+   * @param variables template variables.
+   * @throws IOException if a variable is missing, archive reading or any output file writing fails.
+   * @see #setManifestDir(File)
+   */
   public void exec(String type, String templateName, Map<String, String> variables) throws IOException
+  {
+    File templateFile = getTemplateFile(type, templateName);
+    TemplateManifest manifest = null;
+    if(manifestDir != null) {
+      manifest = loadManifest(type, templateName, templateFile);
+      manifest.checkVariables(variables);
+    }
+    exec(templateFile, manifest, variables);
+  }
+
+  /**
+   * Execute template from Home templates directory using random access to archive entries, see
+   * {@link #exec(File, Map, int)}. Archive manifest is loaded from manifests cache, if enabled. Variables used by output
+   * paths are checked before any output is written.
+   *
+   * @param type template type,
+   * @param templateName template name,
+   * @param variables template variables,
+   * @param parallelism number of rendering threads.
+   * @throws IOException if a variable is missing, archive reading or any output file writing fails.
+   */
+  public void exec(String type, String templateName, Map<String, String> variables, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    File templateFile = getTemplateFile(type, templateName);
+    TemplateManifest manifest = manifestDir != null ? loadManifest(type, templateName, templateFile) : null;
+    try (ZipFile zipFile = new ZipFile(templateFile)) {
+      exec(templateFile, zipFile, manifest != null ? manifest : TemplateManifest.scan(zipFile), variables, parallelism);
+    }
+  }
+
+  private TemplateManifest loadManifest(String type, String templateName, File templateFile) throws IOException
+  {
+    File manifestFile = new File(manifestDir, Strings.concat(type, File.separatorChar, templateName, ".manifest"));
+    return TemplateManifest.load(files, templateFile.toPath(), manifestFile.toPath());
+  }
+
+  private static File getTemplateFile(String type, String templateName)
   {
     File woodHomeDir = new File(Home.getPath());
-    File templateFile = new File(woodHomeDir, Strings.concat("template", File.separatorChar, type, File.separatorChar, templateName, ".zip"));
-    exec(templateFile, variables);
+    return new File(woodHomeDir, Strings.concat("template", File.separatorChar, type, File.separatorChar, templateName, ".zip"));
   }
 
   public void exec(File templateFile, Map<String, String> variables) throws IOException
   {
+    exec(templateFile, null, variables);
+  }
+
+  /** Streaming execution taking parsed entries from archive manifest, if not null; entries missing from it are parsed. */
+  private void exec(File templateFile, TemplateManifest manifest, Map<String, String> variables) throws IOException
+  {
+    Map<String, TemplateManifest.Entry> entries = manifest != null ? manifest.getEntriesByName() : Collections.emptyMap();
+    long templateTime = templateFile.lastModified();
     try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(templateFile)))) {
       ZipEntry zipEntry;
       while((zipEntry = zipInputStream.getNextEntry()) != null) {
-        Flag flag = new Flag(zipEntry.getName(), variables);
-        String entryName = Strings.injectVariables(flag.entryName, variables);
-        boolean directory = entryName.endsWith("/");
-
-        String[] zipEntryNameSegments = entryName.split("/");
-        String fileName = zipEntryNameSegments[zipEntryNameSegments.length - 1];
-        boolean template = false;
-        if(fileName.endsWith(TEMPLATE_EXT)) {
-          template = true;
-          fileName = fileName.substring(0, fileName.length() - TEMPLATE_EXT.length());
-          zipEntryNameSegments[zipEntryNameSegments.length - 1] = fileName;
+        TemplateManifest.Entry entry = entries.get(zipEntry.getName());
+        if(entry == null) {
+          entry = TemplateManifest.Entry.parse(zipEntry.getName());
         }
-
-        // ${page}~{compo-script}.js.vtl
-        // if there is no 'compo-script' variable equal with 'true' then ignores zip entry
-        if(flag.value != null && !"true".equalsIgnoreCase(variables.get(flag.value))) {
-          if(!directory) {
-            StringWriter writer = new StringWriter();
-            if(template) {
-              copy(zipInputStream, Strings.join(zipEntryNameSegments, '/'), writer, variables);
-            }
-            else {
-              copy(zipInputStream, writer);
-            }
-            excludedFiles.put(fileName, writer.toString());
+        EntryPlan plan = new EntryPlan(entry, variables);
+        if(plan.excluded) {
+          if(!plan.directory) {
+            exclude(templateFile, templateTime, plan, variables);
           }
           continue;
         }
 
-        if(directory) {
-          mkdirs(entryName);
+        if(plan.directory) {
+          mkdirs(plan.path);
           continue;
         }
+        render(templateFile, templateTime, plan, zipInputStream, variables);
+      }
+    }
+  }
+
+  /**
+   * Execute template using random access to archive entries. Output paths are planned from archive central directory
+   * and all directories created upfront, then files are rendered and written concurrently by a bounded pool.
+   *
+   * @param templateFile template archive,
+   * @param variables template variables,
+   * @param parallelism number of rendering threads.
+   * @throws IOException if archive reading or any output file writing fails.
+   */
+  public void exec(File templateFile, Map<String, String> variables, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    try (ZipFile zipFile = new ZipFile(templateFile)) {
+      exec(templateFile, zipFile, TemplateManifest.scan(zipFile), variables, parallelism);
+    }
+  }
+
+  private void exec(File templateFile, ZipFile zipFile, TemplateManifest manifest, Map<String, String> variables, int parallelism) throws IOException
+  {
+    manifest.checkVariables(variables);
+    long templateTime = templateFile.lastModified();
+    List<EntryPlan> filePlans = new ArrayList<>();
+    // directories are sorted so parents come first
+    Set<String> dirs = new TreeSet<>();
+
+    for(TemplateManifest.Entry entry : manifest.getEntries()) {
+      EntryPlan plan = new EntryPlan(entry, variables);
+      if(plan.directory) {
+        if(!plan.excluded) {
+          dirs.add(plan.path);
+        }
+        continue;
+      }
+      if(plan.excluded) {
+        exclude(templateFile, templateTime, plan, variables);
+        continue;
+      }
+      filePlans.add(plan);
+    }
+
+    for(String dir : dirs) {
+      mkdirs(dir);
+    }
+
+    if(parallelism == 1) {
+      for(EntryPlan plan : filePlans) {
+        render(templateFile, zipFile, templateTime, plan, variables);
+      }
+      return;
+    }
+
+    Failures failures = new Failures();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      for(EntryPlan plan : filePlans) {
+        executor.execute(() -> {
+          try {
+            render(templateFile, zipFile, templateTime, plan, variables);
+          }
+          catch(IOException | RuntimeException e) {
+            failures.add(e);
+          }
+        });
+      }
+      FilesUtil.awaitTermination(executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    failures.throwIfAny(Strings.format("Fail to execute template %s.", templateFile));
+  }
+
+  /**
+   * Execute the same template for many targets, each with its own variables and target directory. Template archive is
+   * opened and its templates compiled once, then targets are rendered concurrently, every target on its own processor
+   * that inherits this processor console, files utility and settings. Static files are streamed from shared archive for
+   * every target. A failing target does not stop the others; its error is reported on its result.
+   *
+   * @param templateFile template archive,
+   * @param targets render targets,
+   * @param parallelism number of rendering threads.
+   * @return results in targets order.
+   * @throws IOException if template archive reading or any template compiling fails.
+   */
+  public List<BatchResult> execBatch(File templateFile, List<BatchTarget> targets, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    long templateTime = templateFile.lastModified();
+    // compiled templates are shared by all targets; if this processor does not cache templates use a batch scoped cache
+    TemplateCache batchTemplateCache = templateCache != null ? templateCache : new TemplateCache(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+    try (ZipFile zipFile = new ZipFile(templateFile)) {
+      TemplateManifest manifest = TemplateManifest.scan(zipFile);
+      // compile upfront so that invalid templates fail the batch before any output; entries are classified per target,
+      // after variables injection, and entry name with template extension is a template whatever the variables
+      for(TemplateManifest.Entry entry : manifest.getEntries()) {
+        if(entry.entryName.endsWith(TEMPLATE_EXT)) {
+          try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(entry.zipEntryName))) {
+            compile(batchTemplateCache, templateFile, templateTime, entry.zipEntryName, inputStream);
+          }
+        }
+      }
+
+      List<BatchResult> results = new ArrayList<>(Collections.nCopies(targets.size(), null));
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+      try {
+        for(int i = 0; i < targets.size(); ++i) {
+          int index = i;
+          BatchTarget target = targets.get(i);
+          executor.execute(() -> {
+            TemplateProcessor processor = new TemplateProcessor(this, target.targetDir);
+            processor.templateCache = batchTemplateCache;
+            Throwable error = null;
+            try {
+              processor.exec(templateFile, zipFile, manifest, target.variables, 1);
+            }
+            catch(Throwable t) {
+              // errors too, e.g. stack overflow on a deeply nested template, should not leave a null result slot
+              error = t;
+            }
+            results.set(index, new BatchResult(target, processor, error));
+          });
+        }
+        FilesUtil.awaitTermination(executor);
+      }
+      finally {
+        executor.shutdownNow();
+      }
+      return results;
+    }
+  }
+
+  private void render(File templateFile, ZipFile zipFile, long templateTime, EntryPlan plan, Map<String, String> variables) throws IOException
+  {
+    ZipEntry zipEntry = zipFile.getEntry(plan.zipEntryName);
+    if(zipEntry == null) {
+      throw new IOException(Strings.format("Missing entry %s from template %s.", plan.zipEntryName, templateFile));
+    }
+    try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+      render(templateFile, templateTime, plan, inputStream, variables);
+    }
+  }
+
+  private void render(File templateFile, long templateTime, EntryPlan plan, InputStream inputStream, Map<String, String> variables) throws IOException
+  {
+    // by convention, for formatted files, file name has .vtl extension
+    if(plan.template) {
+      copy(compile(templateFile, templateTime, plan.zipEntryName, inputStream), plan.path, variables);
+    }
+    else {
+      copy(inputStream, plan.path);
+    }
+  }
 
-        // by convention, for formatted files, file name has .vtl extension
-        if(template) {
-          copy(zipInputStream, Strings.join(zipEntryNameSegments, '/'), variables);
+  private void exclude(File templateFile, long templateTime, EntryPlan plan, Map<String, String> variables)
+  {
+    // variables are copied since caller is free to change them after execution
+    excludedFiles.put(plan.fileName, new ExcludedFile(templateFile, templateTime, plan, new HashMap<>(variables)));
+    synchronized(excludedContents) {
+      String content = excludedContents.remove(plan.fileName);
+      if(content != null) {
+        excludedContentsSize -= content.length();
+      }
+    }
+  }
+
+  private String getExcludedContent(String fileName, ExcludedFile excludedFile) throws IOException
+  {
+    synchronized(excludedContents) {
+      String content = excludedContents.get(fileName);
+      if(content != null) {
+        return content;
+      }
+    }
+
+    if(excludedFile.templateFile.lastModified() != excludedFile.templateTime) {
+      throw new IOException(Strings.format("Template %s changed since execution. Cannot render excluded file %s.", excludedFile.templateFile, fileName));
+    }
+    StringWriter writer = new StringWriter();
+    try (ZipFile zipFile = new ZipFile(excludedFile.templateFile)) {
+      ZipEntry zipEntry = zipFile.getEntry(excludedFile.plan.zipEntryName);
+      if(zipEntry == null) {
+        throw new IOException(Strings.format("Missing entry %s from template %s.", excludedFile.plan.zipEntryName, excludedFile.templateFile));
+      }
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        if(excludedFile.plan.template) {
+          merge(compile(excludedFile.templateFile, excludedFile.templateTime, excludedFile.plan.zipEntryName, inputStream), writer, excludedFile.variables);
         }
         else {
-          copy(zipInputStream, entryName);
+          copy(inputStream, writer);
         }
       }
     }
+    String content = writer.toString();
+
+    synchronized(excludedContents) {
+      if(excludedContentsMaxSize > 0 && excludedFiles.get(fileName) == excludedFile) {
+        String previous = excludedContents.put(fileName, content);
+        if(previous != null) {
+          excludedContentsSize -= previous.length();
+        }
+        excludedContentsSize += content.length();
+        evictExcludedContents();
+      }
+    }
+    return content;
+  }
+
+  /** Evict least recently used content till cache fits its bound. Caller should hold excluded contents lock. */
+  private void evictExcludedContents()
+  {
+    Iterator<String> iterator = excludedContents.values().iterator();
+    while(iterator.hasNext() && excludedContentsSize > excludedContentsMaxSize) {
+      excludedContentsSize -= iterator.next().length();
+      iterator.remove();
+    }
   }
 
   private void mkdirs(String path) throws IOException
@@ -115,29 +470,46 @@ public class TemplateProcessor
     }
   }
 
-  private void copy(ZipInputStream zipInputStream, String zipEntryName, Map<String, String> variables) throws IOException
+  /**
+   * Get compiled template for current ZIP entry, from cache if available. Template name used on error messages is the
+   * archive entry name, that is, before variables injection.
+   */
+  private Template compile(File templateFile, long templateTime, String zipEntryName, InputStream inputStream) throws IOException
+  {
+    return compile(templateCache, templateFile, templateTime, zipEntryName, inputStream);
+  }
+
+  private static Template compile(TemplateCache templateCache, File templateFile, long templateTime, String zipEntryName, InputStream inputStream) throws IOException
+  {
+    Reader reader = new UncloseableReader(new InputStreamReader(inputStream));
+    if(templateCache == null) {
+      return TemplateCache.compile(zipEntryName, reader);
+    }
+    return templateCache.get(templateFile, templateTime, zipEntryName, reader);
+  }
+
+  private void copy(Template template, String zipEntryName, Map<String, String> variables) throws IOException
   {
     File file = new File(targetDir, zipEntryName);
     if(verbose) {
       print("Create file '%s'.", file);
     }
-    copy(zipInputStream, zipEntryName, new FileWriter(file), variables);
+    merge(template, new FileWriter(file), variables);
   }
 
-  private void copy(ZipInputStream zipInputStream, String zipEntryName, Writer writer, Map<String, String> variables) throws IOException
+  private static void merge(Template template, Writer writer, Map<String, String> variables) throws IOException
   {
     VelocityContext context = new VelocityContext();
     for(Map.Entry<String, String> entry : variables.entrySet()) {
       context.put(entry.getKey(), entry.getValue());
     }
 
-    Reader reader = new UncloseableReader(new InputStreamReader(zipInputStream));
     try (Writer bufferedWriter = new BufferedWriter(writer)) {
-      org.apache.velocity.app.Velocity.evaluate(context, writer, zipEntryName, reader);
+      template.merge(context, bufferedWriter);
     }
   }
 
-  private void copy(ZipInputStream zipInputStream, String zipEntryName) throws IOException
+  private void copy(InputStream inputStream, String zipEntryName) throws IOException
   {
     File file = new File(targetDir, zipEntryName);
     if(verbose) {
@@ -147,85 +519,192 @@ public class TemplateProcessor
     byte[] buffer = new byte[2048];
     try (BufferedOutputStream fileOutputStream = new BufferedOutputStream(new FileOutputStream(file), buffer.length)) {
       int len;
-      while((len = zipInputStream.read(buffer)) > 0) {
+      while((len = inputStream.read(buffer)) > 0) {
         fileOutputStream.write(buffer, 0, len);
       }
     }
   }
 
-  private void copy(ZipInputStream zipInputStream, Writer writer) throws IOException
+  private void copy(InputStream inputStream, Writer writer) throws IOException
   {
     char[] buffer = new char[2048];
     int len;
-    try (Reader reader = new UncloseableReader(new InputStreamReader(zipInputStream)); Writer bufferedWriter = new BufferedWriter(writer)) {
+    try (Reader reader = new UncloseableReader(new InputStreamReader(inputStream)); Writer bufferedWriter = new BufferedWriter(writer)) {
       while((len = reader.read(buffer)) > 0) {
         writer.write(buffer, 0, len);
       }
     }
   }
 
-  protected static void print(String format, Object... args)
+  /** Print message on processor console; console is locked so that messages from rendering threads do not interleave. */
+  protected void print(String format, Object... args)
   {
-    System.out.printf(format, args);
-    System.out.println();
+    synchronized(console) {
+      console.print(format, args);
+    }
   }
 
-  private static class UncloseableReader extends Reader
+  /** Variables and target directory for a batch execution. */
+  public static class BatchTarget
   {
-    private final Reader reader;
+    private final Map<String, String> variables;
+    private final File targetDir;
 
-    public UncloseableReader(Reader reader)
+    public BatchTarget(Map<String, String> variables, File targetDir)
     {
-      super();
-      this.reader = reader;
+      this.variables = variables;
+      this.targetDir = targetDir;
+    }
+
+    public Map<String, String> getVariables()
+    {
+      return variables;
+    }
+
+    public File getTargetDir()
+    {
+      return targetDir;
+    }
+  }
+
+  /** Outcome of a batch target execution: error, if target failed, and access to its flag excluded files. */
+  public static class BatchResult
+  {
+    private final BatchTarget target;
+    private final TemplateProcessor processor;
+    private final Throwable error;
+
+    private BatchResult(BatchTarget target, TemplateProcessor processor, Throwable error)
+    {
+      this.target = target;
+      this.processor = processor;
+      this.error = error;
+    }
+
+    public BatchTarget getTarget()
+    {
+      return target;
+    }
+
+    public boolean isSuccess()
+    {
+      return error == null;
+    }
+
+    /** Get target execution error or null if target succeeded. */
+    public Throwable getError()
+    {
+      return error;
+    }
+
+    public Reader getExcludedFileReader(String fileName)
+    {
+      return processor.getExcludedFileReader(fileName);
+    }
+  }
+
+  /** Reference to a file excluded by flag: template archive, archive entry and variables for on demand rendering. */
+  private static class ExcludedFile
+  {
+    final File templateFile;
+    final long templateTime;
+    final EntryPlan plan;
+    final Map<String, String> variables;
+
+    ExcludedFile(File templateFile, long templateTime, EntryPlan plan, Map<String, String> variables)
+    {
+      this.templateFile = templateFile;
+      this.templateTime = templateTime;
+      this.plan = plan;
+      this.variables = variables;
+    }
+  }
+
+  /** Reader for excluded file content, rendering content on first read. */
+  private class ExcludedFileReader extends Reader
+  {
+    private final String fileName;
+    private final ExcludedFile excludedFile;
+    private Reader reader;
+    private boolean closed;
+
+    public ExcludedFileReader(String fileName, ExcludedFile excludedFile)
+    {
+      this.fileName = fileName;
+      this.excludedFile = excludedFile;
     }
 
     @Override
     public int read(char[] cbuf, int off, int len) throws IOException
     {
+      if(closed) {
+        throw new IOException("Stream closed");
+      }
+      if(reader == null) {
+        reader = new StringReader(getExcludedContent(fileName, excludedFile));
+      }
       return reader.read(cbuf, off, len);
     }
 
     @Override
     public void close() throws IOException
     {
+      closed = true;
+      reader = null;
     }
   }
 
-  private static class Flag
+  private static class UncloseableReader extends Reader
   {
-    final String entryName;
-    final String value;
+    private final Reader reader;
 
-    Flag(String entryName, Map<String, String> variables) throws IOException
+    public UncloseableReader(Reader reader)
     {
-      int start = entryName.indexOf("~{");
-      if(start == -1) {
-        this.entryName = entryName;
-        this.value = null;
-        return;
-      }
-      int end = entryName.indexOf('}', start);
-      if(end == -1) {
-        throw new IOException(Strings.format("Invalid ZIP entery name %s. Missing flag end mark.", entryName));
-      }
-
-      this.value = entryName.substring(start + 2, end);
+      super();
+      this.reader = reader;
+    }
 
-      StringBuilder stringBuilder = new StringBuilder();
-      for(int i = 0; i < start; ++i) {
-        stringBuilder.append(entryName.charAt(i));
-      }
-      for(int i = end + 1; i < entryName.length(); ++i) {
-        stringBuilder.append(entryName.charAt(i));
-      }
-      this.entryName = stringBuilder.toString();
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException
+    {
+      return reader.read(cbuf, off, len);
     }
 
     @Override
-    public String toString()
+    public void close() throws IOException
     {
-      return "Flag [entryName=" + entryName + ", value=" + value + "]";
+    }
+  }
+
+  /** Output plan for an archive entry, resolved from entry name, flag and variables. */
+  private static class EntryPlan
+  {
+    final String zipEntryName;
+    /** Output path relative to target directory, template extension removed. */
+    final String path;
+    final String fileName;
+    final boolean directory;
+    final boolean template;
+    final boolean excluded;
+
+    EntryPlan(TemplateManifest.Entry entry, Map<String, String> variables)
+    {
+      this.zipEntryName = entry.zipEntryName;
+      this.excluded = entry.isExcluded(variables);
+
+      // entry is classified after variables injection, that is, on output path
+      String entryName = Strings.injectVariables(entry.entryName, variables);
+      String[] zipEntryNameSegments = entryName.split("/");
+      String fileName = zipEntryNameSegments[zipEntryNameSegments.length - 1];
+      this.directory = entryName.endsWith("/");
+      // by convention, formatted files have .vtl extension
+      this.template = !directory && fileName.endsWith(TEMPLATE_EXT);
+      if(template) {
+        fileName = fileName.substring(0, fileName.length() - TEMPLATE_EXT.length());
+        zipEntryNameSegments[zipEntryNameSegments.length - 1] = fileName;
+      }
+      this.fileName = fileName;
+      this.path = directory ? entryName : Strings.join(zipEntryNameSegments, '/');
     }
   }
 }
@@ -0,0 +1,57 @@
+package com.jslib.commons.cli;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Differences between two snapshots of the same directory tree, see {@link TreeSnapshot#diff(TreeSnapshot)}. Paths are
+ * relative to tree root, with slash separator, and sorted.
+ */
+public class TreeDiff
+{
+  private final List<String> addedPaths = new ArrayList<>();
+  private final List<String> removedPaths = new ArrayList<>();
+  private final List<String> modifiedPaths = new ArrayList<>();
+
+  void added(String path)
+  {
+    addedPaths.add(path);
+  }
+
+  void removed(String path)
+  {
+    removedPaths.add(path);
+  }
+
+  void modified(String path)
+  {
+    modifiedPaths.add(path);
+  }
+
+  public List<String> getAddedPaths()
+  {
+    return Collections.unmodifiableList(addedPaths);
+  }
+
+  public List<String> getRemovedPaths()
+  {
+    return Collections.unmodifiableList(removedPaths);
+  }
+
+  public List<String> getModifiedPaths()
+  {
+    return Collections.unmodifiableList(modifiedPaths);
+  }
+
+  public boolean isEmpty()
+  {
+    return addedPaths.isEmpty() && removedPaths.isEmpty() && modifiedPaths.isEmpty();
+  }
+
+  @Override
+  public String toString()
+  {
+    return "TreeDiff [added=" + addedPaths + ", removed=" + removedPaths + ", modified=" + modifiedPaths + "]";
+  }
+}
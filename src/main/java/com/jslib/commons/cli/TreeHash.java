@@ -0,0 +1,217 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.spi.FileSystemProvider;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.jslib.util.Strings;
+
+/**
+ * Content hashes of a directory tree. Every regular file has the digest of its content; every directory has a Merkle
+ * hash, that is, the digest of its sorted child entries - type, name and hash, so that two directories have the same
+ * hash if and only if they have the same content, and root hash is a fingerprint of the entire tree. Paths are relative
+ * to root directory, always with slash separator; root directory itself has empty path. Symbolic links are ignored.
+ * <p>
+ * Files are hashed in parallel, each worker streaming file content through its own reusable direct buffer and digest.
+ */
+public class TreeHash
+{
+  private static final byte FILE_ENTRY = 'F';
+  private static final byte DIRECTORY_ENTRY = 'D';
+
+  private final Map<String, byte[]> fileHashes;
+  private final Map<String, byte[]> directoryHashes;
+
+  private TreeHash(Map<String, byte[]> fileHashes, Map<String, byte[]> directoryHashes)
+  {
+    this.fileHashes = fileHashes;
+    this.directoryHashes = directoryHashes;
+  }
+
+  public static TreeHash compute(FilesUtil files, Path rootDir, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    Map<String, byte[]> fileHashes = new ConcurrentHashMap<>();
+    Map<String, byte[]> directoryHashes = new ConcurrentHashMap<>();
+    Failures failures = new Failures();
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new HashDirectoryTask(files, rootDir, "", fileHashes, directoryHashes, failures));
+    }
+    finally {
+      pool.shutdown();
+    }
+    failures.throwIfAny(Strings.format("Fail to hash directory %s.", rootDir));
+    return new TreeHash(new TreeMap<>(fileHashes), new TreeMap<>(directoryHashes));
+  }
+
+  public byte[] getRootHash()
+  {
+    return directoryHashes.get("");
+  }
+
+  /** Get content hash of file with given relative path or null if there is no such file. */
+  public byte[] getFileHash(String path)
+  {
+    return fileHashes.get(path);
+  }
+
+  /** Get Merkle hash of directory with given relative path or null if there is no such directory. */
+  public byte[] getDirectoryHash(String path)
+  {
+    return directoryHashes.get(path);
+  }
+
+  /** Get relative paths of all hashed files, sorted. */
+  public List<String> getFilePaths()
+  {
+    return new ArrayList<>(fileHashes.keySet());
+  }
+
+  /**
+   * Get groups of files with identical content. Every group has at least two files and files inside group are sorted;
+   * groups are ordered by their first file.
+   *
+   * @return duplicate file groups, possible empty.
+   */
+  public List<List<String>> getDuplicates()
+  {
+    Map<ByteBuffer, List<String>> groups = new LinkedHashMap<>();
+    for(Map.Entry<String, byte[]> entry : fileHashes.entrySet()) {
+      groups.computeIfAbsent(ByteBuffer.wrap(entry.getValue()), hash -> new ArrayList<>()).add(entry.getKey());
+    }
+    List<List<String>> duplicates = new ArrayList<>();
+    for(List<String> group : groups.values()) {
+      if(group.size() > 1) {
+        duplicates.add(Collections.unmodifiableList(group));
+      }
+    }
+    return duplicates;
+  }
+
+  /**
+   * Hash directory children - forking a task for every file and every subdirectory, then compute directory Merkle hash
+   * from children hashes. Result is directory hash or null if directory or any of its descendants failed.
+   */
+  private static class HashDirectoryTask extends RecursiveTask<byte[]>
+  {
+    private static final long serialVersionUID = -3510484166186366512L;
+
+    private final FilesUtil files;
+    private final Path dir;
+    private final String path;
+    private final Map<String, byte[]> fileHashes;
+    private final Map<String, byte[]> directoryHashes;
+    private final Failures failures;
+
+    public HashDirectoryTask(FilesUtil files, Path dir, String path, Map<String, byte[]> fileHashes, Map<String, byte[]> directoryHashes, Failures failures)
+    {
+      this.files = files;
+      this.dir = dir;
+      this.path = path;
+      this.fileHashes = fileHashes;
+      this.directoryHashes = directoryHashes;
+      this.failures = failures;
+    }
+
+    @Override
+    protected byte[] compute()
+    {
+      FileSystemProvider provider = files.getFileSystem().provider();
+      Map<String, RecursiveTask<byte[]>> fileTasks = new TreeMap<>();
+      Map<String, RecursiveTask<byte[]>> directoryTasks = new TreeMap<>();
+
+      try (DirectoryStream<Path> directoryStream = provider.newDirectoryStream(dir, file -> true)) {
+        for(Path file : directoryStream) {
+          String name = file.getFileName().toString();
+          String childPath = path.isEmpty() ? name : path + '/' + name;
+          BasicFileAttributes attributes = provider.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if(attributes.isDirectory()) {
+            directoryTasks.put(name, new HashDirectoryTask(files, file, childPath, fileHashes, directoryHashes, failures));
+          }
+          else if(attributes.isRegularFile()) {
+            fileTasks.put(name, new HashFileTask(files, file, childPath, fileHashes, failures));
+          }
+        }
+      }
+      catch(IOException | DirectoryIteratorException e) {
+        failures.add(e);
+        return null;
+      }
+
+      invokeAll(fileTasks.values());
+      invokeAll(directoryTasks.values());
+
+      // all joins are completed so that thread message digest is not reused by stolen tasks while computing this hash
+      MessageDigest messageDigest = FilesUtil.getMessageDigest();
+      Map<String, RecursiveTask<byte[]>> entries = new TreeMap<>(fileTasks);
+      entries.putAll(directoryTasks);
+      for(Map.Entry<String, RecursiveTask<byte[]>> entry : entries.entrySet()) {
+        byte[] hash = entry.getValue().join();
+        if(hash == null) {
+          return null;
+        }
+        messageDigest.update(directoryTasks.containsKey(entry.getKey()) ? DIRECTORY_ENTRY : FILE_ENTRY);
+        messageDigest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+        messageDigest.update((byte)0);
+        messageDigest.update(hash);
+      }
+      byte[] hash = messageDigest.digest();
+      directoryHashes.put(path, hash);
+      return hash;
+    }
+  }
+
+  private static class HashFileTask extends RecursiveTask<byte[]>
+  {
+    private static final long serialVersionUID = 6958312650927811416L;
+
+    private final FilesUtil files;
+    private final Path file;
+    private final String path;
+    private final Map<String, byte[]> fileHashes;
+    private final Failures failures;
+
+    public HashFileTask(FilesUtil files, Path file, String path, Map<String, byte[]> fileHashes, Failures failures)
+    {
+      this.files = files;
+      this.file = file;
+      this.path = path;
+      this.fileHashes = fileHashes;
+      this.failures = failures;
+    }
+
+    @Override
+    protected byte[] compute()
+    {
+      try {
+        byte[] hash = files.digest(file);
+        fileHashes.put(path, hash);
+        return hash;
+      }
+      catch(IOException e) {
+        failures.add(e);
+        return null;
+      }
+    }
+  }
+}
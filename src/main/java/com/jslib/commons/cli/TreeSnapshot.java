@@ -0,0 +1,292 @@
+package com.jslib.commons.cli;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the regular files from a directory tree, captured in a single walk. For every file keeps relative
+ * path - always with slash separator, size, modification time in milliseconds and optional content digest. Entries are
+ * stored in columnar form, sorted by path, that is, one array per attribute instead of one object per file, so that large
+ * trees have small memory footprint and {@link #diff(TreeSnapshot)} is a linear merge.
+ * <p>
+ * Snapshot serializes to a compact binary form: paths are front coded - only the suffix not shared with previous path is
+ * stored, and numbers are variable length encoded, modification times as delta from previous entry.
+ */
+public class TreeSnapshot
+{
+  private static final int MAGIC = 0x4A535453;
+  private static final int VERSION = 1;
+  /** Sane limits for lengths read from a snapshot stream, large enough for any message digest and file path. */
+  private static final int MAX_DIGEST_LENGTH = 1024;
+  private static final int MAX_PATH_LENGTH = 1 << 16;
+
+  private final String[] paths;
+  private final long[] sizes;
+  private final long[] modificationTimes;
+  /** Concatenated content digests, in paths order, or null if snapshot has no digests. */
+  private final byte[] digests;
+  private final int digestLength;
+
+  private TreeSnapshot(String[] paths, long[] sizes, long[] modificationTimes, byte[] digests, int digestLength)
+  {
+    this.paths = paths;
+    this.sizes = sizes;
+    this.modificationTimes = modificationTimes;
+    this.digests = digests;
+    this.digestLength = digestLength;
+  }
+
+  public static TreeSnapshot capture(FilesUtil files, Path rootDir, boolean digest) throws IOException
+  {
+    Builder builder = new Builder();
+    files.walkFileTree(rootDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        if(attrs.isRegularFile()) {
+          String path = rootDir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+          builder.add(path, attrs.size(), attrs.lastModifiedTime().toMillis(), digest ? files.digest(file) : null);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return builder.build();
+  }
+
+  public int size()
+  {
+    return paths.length;
+  }
+
+  public String getPath(int index)
+  {
+    return paths[index];
+  }
+
+  public long getSize(int index)
+  {
+    return sizes[index];
+  }
+
+  public long getModificationTime(int index)
+  {
+    return modificationTimes[index];
+  }
+
+  public boolean hasDigests()
+  {
+    return digests != null;
+  }
+
+  public byte[] getDigest(int index)
+  {
+    if(digests == null) {
+      return null;
+    }
+    return Arrays.copyOfRange(digests, index * digestLength, (index + 1) * digestLength);
+  }
+
+  public int indexOf(String path)
+  {
+    int index = Arrays.binarySearch(paths, path);
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * Compare this snapshot, considered the older one, with a newer snapshot. A file present in both snapshots is modified
+   * if size differs or, if both snapshots have digests, if digests differ; without digests modification time is compared
+   * instead.
+   *
+   * @param newer newer snapshot of the same tree.
+   * @return differences between snapshots.
+   */
+  public TreeDiff diff(TreeSnapshot newer)
+  {
+    TreeDiff diff = new TreeDiff();
+    boolean compareDigests = digests != null && newer.digests != null && digestLength == newer.digestLength;
+
+    int i = 0;
+    int j = 0;
+    while(i < paths.length || j < newer.paths.length) {
+      int order = i == paths.length ? 1 : j == newer.paths.length ? -1 : paths[i].compareTo(newer.paths[j]);
+      if(order < 0) {
+        diff.removed(paths[i++]);
+        continue;
+      }
+      if(order > 0) {
+        diff.added(newer.paths[j++]);
+        continue;
+      }
+      if(isModified(i, newer, j, compareDigests)) {
+        diff.modified(paths[i]);
+      }
+      ++i;
+      ++j;
+    }
+    return diff;
+  }
+
+  private boolean isModified(int index, TreeSnapshot newer, int newerIndex, boolean compareDigests)
+  {
+    if(sizes[index] != newer.sizes[newerIndex]) {
+      return true;
+    }
+    if(compareDigests) {
+      int offset = index * digestLength;
+      int newerOffset = newerIndex * digestLength;
+      for(int i = 0; i < digestLength; ++i) {
+        if(digests[offset + i] != newer.digests[newerOffset + i]) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return modificationTimes[index] != newer.modificationTimes[newerIndex];
+  }
+
+  public void save(OutputStream stream) throws IOException
+  {
+    DataOutputStream outputStream = new DataOutputStream(stream);
+    outputStream.writeInt(MAGIC);
+    outputStream.writeInt(VERSION);
+    VarInt.write(outputStream, paths.length);
+    VarInt.write(outputStream, digests != null ? digestLength : 0);
+
+    byte[] previousPath = new byte[0];
+    long previousModificationTime = 0;
+    for(int i = 0; i < paths.length; ++i) {
+      byte[] path = paths[i].getBytes(StandardCharsets.UTF_8);
+      int prefixLength = 0;
+      int maxPrefixLength = Math.min(path.length, previousPath.length);
+      while(prefixLength < maxPrefixLength && path[prefixLength] == previousPath[prefixLength]) {
+        ++prefixLength;
+      }
+      VarInt.write(outputStream, prefixLength);
+      VarInt.write(outputStream, path.length - prefixLength);
+      outputStream.write(path, prefixLength, path.length - prefixLength);
+      previousPath = path;
+
+      VarInt.write(outputStream, sizes[i]);
+      VarInt.write(outputStream, VarInt.zigZag(modificationTimes[i] - previousModificationTime));
+      previousModificationTime = modificationTimes[i];
+      if(digests != null) {
+        outputStream.write(digests, i * digestLength, digestLength);
+      }
+    }
+    outputStream.flush();
+  }
+
+  public static TreeSnapshot load(InputStream stream) throws IOException
+  {
+    DataInputStream inputStream = new DataInputStream(stream);
+    if(inputStream.readInt() != MAGIC) {
+      throw new IOException("Invalid tree snapshot. Bad magic number.");
+    }
+    int version = inputStream.readInt();
+    if(version != VERSION) {
+      throw new IOException("Not supported tree snapshot version " + version);
+    }
+    int count = VarInt.readInt(inputStream);
+    int digestLength = VarInt.readInt(inputStream);
+    if(digestLength > MAX_DIGEST_LENGTH) {
+      throw new IOException("Invalid tree snapshot. Bad digest length " + digestLength);
+    }
+
+    // columns grow with entries actually read instead of being allocated from a count that may be corrupt
+    Builder builder = new Builder();
+    byte[] path = new byte[256];
+    int pathLength = 0;
+    long modificationTime = 0;
+    for(int i = 0; i < count; ++i) {
+      int prefixLength = VarInt.readInt(inputStream);
+      int suffixLength = VarInt.readInt(inputStream);
+      if(prefixLength > pathLength || suffixLength > MAX_PATH_LENGTH) {
+        throw new IOException("Invalid tree snapshot. Bad path length.");
+      }
+      pathLength = prefixLength + suffixLength;
+      if(pathLength > path.length) {
+        path = Arrays.copyOf(path, Math.max(2 * path.length, pathLength));
+      }
+      inputStream.readFully(path, prefixLength, suffixLength);
+
+      long size = VarInt.readLong(inputStream);
+      modificationTime += VarInt.unZigZag(VarInt.readLong(inputStream));
+      byte[] digest = null;
+      if(digestLength > 0) {
+        digest = new byte[digestLength];
+        inputStream.readFully(digest);
+      }
+      builder.add(new String(path, 0, pathLength, StandardCharsets.UTF_8), size, modificationTime, digest);
+    }
+    return builder.build();
+  }
+
+  /** Collect entries in walk order, growing columns as needed, and sort them by path on build. */
+  private static class Builder
+  {
+    private String[] paths = new String[256];
+    private long[] sizes = new long[256];
+    private long[] modificationTimes = new long[256];
+    private byte[] digests;
+    private int digestLength;
+    private int count;
+
+    void add(String path, long size, long modificationTime, byte[] digest)
+    {
+      if(count == paths.length) {
+        int capacity = 2 * count;
+        paths = Arrays.copyOf(paths, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+        modificationTimes = Arrays.copyOf(modificationTimes, capacity);
+        if(digests != null) {
+          digests = Arrays.copyOf(digests, capacity * digestLength);
+        }
+      }
+      if(digest != null) {
+        if(digests == null) {
+          digestLength = digest.length;
+          digests = new byte[paths.length * digestLength];
+        }
+        System.arraycopy(digest, 0, digests, count * digestLength, digestLength);
+      }
+      paths[count] = path;
+      sizes[count] = size;
+      modificationTimes[count] = modificationTime;
+      ++count;
+    }
+
+    TreeSnapshot build()
+    {
+      Integer[] order = new Integer[count];
+      for(int i = 0; i < count; ++i) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (i, j) -> paths[i].compareTo(paths[j]));
+
+      String[] sortedPaths = new String[count];
+      long[] sortedSizes = new long[count];
+      long[] sortedModificationTimes = new long[count];
+      byte[] sortedDigests = digests != null ? new byte[count * digestLength] : null;
+      for(int i = 0; i < count; ++i) {
+        int index = order[i];
+        sortedPaths[i] = paths[index];
+        sortedSizes[i] = sizes[index];
+        sortedModificationTimes[i] = modificationTimes[index];
+        if(sortedDigests != null) {
+          System.arraycopy(digests, index * digestLength, sortedDigests, i * digestLength, digestLength);
+        }
+      }
+      return new TreeSnapshot(sortedPaths, sortedSizes, sortedModificationTimes, sortedDigests, digestLength);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.jslib.commons.cli;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length encoding for non negative integers used by compact binary files: seven bits per byte, least
+ * significant group first, high bit set on all bytes but the last one.
+ */
+final class VarInt
+{
+  private VarInt()
+  {
+  }
+
+  public static void write(DataOutput output, long value) throws IOException
+  {
+    while((value & ~0x7FL) != 0) {
+      output.writeByte((int)((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    output.writeByte((int)value);
+  }
+
+  public static long readLong(DataInput input) throws IOException
+  {
+    long value = 0;
+    for(int shift = 0; shift < 64; shift += 7) {
+      int b = input.readUnsignedByte();
+      value |= (long)(b & 0x7F) << shift;
+      if((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Invalid variable length integer.");
+  }
+
+  public static int readInt(DataInput input) throws IOException
+  {
+    long value = readLong(input);
+    if(value > Integer.MAX_VALUE) {
+      throw new IOException("Variable length integer overflow.");
+    }
+    return (int)value;
+  }
+
+  /** Map signed value to unsigned so that small negative values have short encoding too. */
+  public static long zigZag(long value)
+  {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  public static long unZigZag(long value)
+  {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
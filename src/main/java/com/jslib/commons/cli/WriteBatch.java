@@ -0,0 +1,173 @@
+package com.jslib.commons.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Group of atomic file writes that pay the durability cost once, on batch commit. Files written through batch streams
+ * are kept in temporary siblings; {@link #commit()} forces all of them to storage, concurrently, renames every one over
+ * its target and finally syncs each affected directory once. Closing batch without commit discards all pending files.
+ *
+ * <pre>
+ * try (WriteBatch batch = files.beginWriteBatch()) {
+ *   for(...) {
+ *     try (AtomicOutputStream stream = batch.getOutputStream(file)) {
+ *       ...
+ *       stream.commit();
+ *     }
+ *   }
+ *   batch.commit();
+ * }
+ * </pre>
+ *
+ * Note that batch is not a transaction: if commit fails midway, files already renamed keep their new content.
+ */
+public class WriteBatch implements Closeable
+{
+  /** Maximum number of concurrent file syncs on batch commit. */
+  private static final int SYNC_THREADS = 16;
+
+  private final FilesUtil files;
+  private final List<AtomicOutputStream> pendingStreams = new ArrayList<>();
+
+  WriteBatch(FilesUtil files)
+  {
+    this.files = files;
+  }
+
+  public AtomicOutputStream getOutputStream(Path file) throws IOException
+  {
+    return new AtomicOutputStream(files, file, this);
+  }
+
+  public AtomicWriter getWriter(Path file) throws IOException
+  {
+    return new AtomicWriter(getOutputStream(file));
+  }
+
+  synchronized void add(AtomicOutputStream stream)
+  {
+    pendingStreams.add(stream);
+  }
+
+  public synchronized int size()
+  {
+    return pendingStreams.size();
+  }
+
+  /**
+   * Force all pending files to storage, rename them over their targets and sync every affected directory once.
+   * <p>
+   * Data syncs cannot be skipped in favor of directory syncs alone: if a rename reaches storage before the renamed file
+   * data, a crash leaves target file empty or partially written, which is exactly what atomic write is meant to prevent.
+   * Instead, they are issued concurrently so that file systems with a journal, e.g. ext4 or XFS, can group them into a
+   * single journal commit; batch commit cost is then closer to one fsync than to one fsync per file. Renames are
+   * performed only after all data syncs succeeded.
+   *
+   * @throws IOException if any sync or rename fails.
+   */
+  public synchronized void commit() throws IOException
+  {
+    try {
+      forceAll();
+
+      Set<Path> dirs = new LinkedHashSet<>();
+      int renamedCount = 0;
+      try {
+        for(AtomicOutputStream stream : pendingStreams) {
+          stream.rename();
+          ++renamedCount;
+          dirs.add(stream.getTargetFile().toAbsolutePath().getParent());
+        }
+      }
+      finally {
+        pendingStreams.subList(0, renamedCount).clear();
+      }
+      for(Path dir : dirs) {
+        AtomicOutputStream.fsyncDirectory(files, dir);
+      }
+    }
+    finally {
+      close();
+    }
+  }
+
+  private void forceAll() throws IOException
+  {
+    if(pendingStreams.isEmpty()) {
+      return;
+    }
+    if(pendingStreams.size() == 1) {
+      force(pendingStreams.get(0).getTempFile());
+      return;
+    }
+
+    Failures failures = new Failures();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(pendingStreams.size(), SYNC_THREADS));
+    try {
+      for(AtomicOutputStream stream : pendingStreams) {
+        executor.execute(() -> {
+          try {
+            force(stream.getTempFile());
+          }
+          catch(IOException e) {
+            failures.add(e);
+          }
+        });
+      }
+      FilesUtil.awaitTermination(executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    failures.throwIfAny("Fail to sync write batch.");
+  }
+
+  private void force(Path file) throws IOException
+  {
+    FileChannel channel;
+    try {
+      channel = files.getFileSystem().provider().newFileChannel(file, EnumSet.of(StandardOpenOption.WRITE));
+    }
+    catch(AccessDeniedException unused) {
+      // temporary file got read-only permissions of its target; POSIX systems allow sync on a file opened for reading
+      channel = files.getFileSystem().provider().newFileChannel(file, EnumSet.of(StandardOpenOption.READ));
+    }
+    try {
+      channel.force(true);
+    }
+    finally {
+      channel.close();
+    }
+  }
+
+  /** Discard files not yet committed. */
+  @Override
+  public synchronized void close() throws IOException
+  {
+    IOException exception = null;
+    for(AtomicOutputStream stream : pendingStreams) {
+      try {
+        files.getFileSystem().provider().deleteIfExists(stream.getTempFile());
+      }
+      catch(IOException e) {
+        exception = e;
+      }
+    }
+    pendingStreams.clear();
+    if(exception != null) {
+      throw exception;
+    }
+  }
+}
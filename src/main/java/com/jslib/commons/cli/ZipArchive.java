@@ -0,0 +1,653 @@
+package com.jslib.commons.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.jslib.util.Strings;
+
+/**
+ * Parallel ZIP archive packing and unpacking, used by {@link FilesUtil#zip(Path, Path, int)} and
+ * {@link FilesUtil#unzip(Path, Path, int)}.
+ * <p>
+ * Packing compresses entries concurrently, pigz style, while a single writer assembles the archive in entries order, so
+ * that output is deterministic. Standard {@link java.util.zip.ZipOutputStream} cannot accept already deflated data, hence
+ * the archive format is written here: local headers, data, central directory and end record, with ZIP64 extensions when
+ * limits are exceeded. Workers buffer compressed entries in memory and only a bounded window of entries is in flight.
+ * Files too large for memory are split by writer into blocks deflated concurrently by workers, each block primed with
+ * the tail of the previous one as dictionary, and concatenated into a single deflate stream; their local header is
+ * patched afterwards. Files with already compressed formats, and files that do not shrink, are stored.
+ * <p>
+ * Unpacking uses random access {@link ZipFile} and extracts entries concurrently. Entries resolving outside target
+ * directory are rejected.
+ */
+class ZipArchive
+{
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034B50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064B50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064B50;
+  private static final int END_SIGNATURE = 0x06054B50;
+
+  private static final int VERSION = 20;
+  private static final int ZIP64_VERSION = 45;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+  private static final int ZIP32_ENTRIES_LIMIT = 0xFFFF;
+  private static final int DIRECTORY_ATTRIBUTE = 0x10;
+
+  /** Files larger than this limit are compressed in blocks, streaming, instead of buffered whole by a worker. */
+  private static final long IN_MEMORY_LIMIT = 8 * 1024 * 1024;
+  /** Uncompressed size of a large file block deflated by a worker. */
+  private static final int BLOCK_SIZE = 1024 * 1024;
+  /** Deflate window size; a block is compressed with this many trailing bytes of previous block as dictionary. */
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Formats already compressed; deflating them only wastes processor time. */
+  private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList("zip", "jar", "war", "ear", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst", "png", "jpg", "jpeg", "gif", "webp", "ico", "mp3", "mp4", "m4a", "ogg", "webm", "mkv", "mov", "avi", "woff", "woff2"));
+
+  // --------------------------------------------------------------------------------------------
+  // pack
+
+  public static void pack(FilesUtil files, Path sourceDir, Path zipFile, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    List<Entry> entries = collectEntries(files, sourceDir, zipFile);
+    int window = 2 * parallelism;
+    List<Future<CompressedData>> futures = new ArrayList<>(Collections.nCopies(entries.size(), null));
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    boolean complete = false;
+    try (SeekableByteChannel channel = files.getFileSystem().provider().newByteChannel(zipFile, EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+      Writer writer = new Writer(channel);
+      int submittedCount = 0;
+      for(int i = 0; i < entries.size(); ++i) {
+        while(submittedCount < entries.size() && submittedCount < i + window) {
+          Entry entry = entries.get(submittedCount);
+          if(entry.file != null && entry.size <= IN_MEMORY_LIMIT) {
+            futures.set(submittedCount, executor.submit(() -> compress(entry)));
+          }
+          ++submittedCount;
+        }
+
+        Entry entry = entries.get(i);
+        if(entry.file == null) {
+          writer.write(entry, null);
+        }
+        else if(futures.get(i) != null) {
+          writer.write(entry, get(futures.get(i)));
+          futures.set(i, null);
+        }
+        else {
+          writer.stream(entry, files, executor, window);
+        }
+      }
+      writer.finish();
+      complete = true;
+    }
+    finally {
+      executor.shutdownNow();
+      if(!complete) {
+        files.getFileSystem().provider().deleteIfExists(zipFile);
+      }
+    }
+  }
+
+  private static List<Entry> collectEntries(FilesUtil files, Path sourceDir, Path zipFile) throws IOException
+  {
+    // archive created inside source directory should not pack itself; it is truncated when opened for writing
+    Path excludedFile = zipFile.toAbsolutePath().normalize();
+    List<Entry> entries = new ArrayList<>();
+    files.walkFileTree(sourceDir, new SimpleFileVisitor<Path>()
+    {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+      {
+        if(!dir.equals(sourceDir)) {
+          entries.add(new Entry(name(dir) + '/', null, 0, attrs.lastModifiedTime().toMillis(), true));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+      {
+        if(attrs.isRegularFile() && !file.toAbsolutePath().normalize().equals(excludedFile)) {
+          entries.add(new Entry(name(file), file, attrs.size(), attrs.lastModifiedTime().toMillis(), isCompressed(file)));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      private String name(Path path)
+      {
+        return sourceDir.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+      }
+    });
+    entries.sort((entry1, entry2) -> entry1.name.compareTo(entry2.name));
+    return entries;
+  }
+
+  private static boolean isCompressed(Path file)
+  {
+    String fileName = file.getFileName().toString();
+    int extensionPosition = fileName.lastIndexOf('.');
+    return extensionPosition != -1 && COMPRESSED_EXTENSIONS.contains(fileName.substring(extensionPosition + 1).toLowerCase());
+  }
+
+  /** Worker side: read file content and deflate it, falling back to stored if compression does not help. */
+  private static CompressedData compress(Entry entry) throws IOException
+  {
+    byte[] content = Files.readAllBytes(entry.file);
+    CRC32 crc = new CRC32();
+    crc.update(content, 0, content.length);
+    if(entry.store) {
+      return new CompressedData(ZipEntry.STORED, crc.getValue(), content.length, content, content.length);
+    }
+
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      deflater.setInput(content);
+      deflater.finish();
+      byte[] data = new byte[Math.max(64, content.length / 2)];
+      int length = 0;
+      while(!deflater.finished()) {
+        if(length == data.length) {
+          if(length >= content.length) {
+            // deflated data is not smaller than content; store it
+            return new CompressedData(ZipEntry.STORED, crc.getValue(), content.length, content, content.length);
+          }
+          data = Arrays.copyOf(data, 2 * data.length);
+        }
+        length += deflater.deflate(data, length, data.length - length);
+      }
+      if(length >= content.length) {
+        return new CompressedData(ZipEntry.STORED, crc.getValue(), content.length, content, content.length);
+      }
+      return new CompressedData(ZipEntry.DEFLATED, crc.getValue(), content.length, data, length);
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Worker side: deflate a block of a large file. Block is primed with previous block tail so that compression ratio is
+   * close to a single stream deflate. All blocks but the last end with a sync flush, on a byte boundary, so that their
+   * outputs concatenate into a valid deflate stream.
+   *
+   * @param block uncompressed block content,
+   * @param length block length,
+   * @param previousBlock previous block content, null for first block,
+   * @param last true if this is the last block of the file.
+   * @return deflated block.
+   */
+  private static CompressedData deflateBlock(byte[] block, int length, byte[] previousBlock, boolean last)
+  {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      if(previousBlock != null) {
+        deflater.setDictionary(previousBlock, previousBlock.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+      }
+      deflater.setInput(block, 0, length);
+      if(last) {
+        deflater.finish();
+      }
+      byte[] data = new byte[Math.max(64, length / 2)];
+      int dataLength = 0;
+      for(;;) {
+        dataLength += deflater.deflate(data, dataLength, data.length - dataLength, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+        // output buffer not filled means flush, or finish, is complete
+        boolean done = last ? deflater.finished() : dataLength < data.length;
+        if(done) {
+          break;
+        }
+        if(dataLength == data.length) {
+          data = Arrays.copyOf(data, 2 * data.length);
+        }
+      }
+      return new CompressedData(ZipEntry.DEFLATED, 0, length, data, dataLength);
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  private static <T> T get(Future<T> future) throws IOException
+  {
+    try {
+      return future.get();
+    }
+    catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for compression workers.");
+    }
+    catch(ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException)e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** Archive entry; file is null for directories. Compression method, sizes and offset are set when entry is written. */
+  private static class Entry
+  {
+    final String name;
+    final Path file;
+    final long size;
+    final long modificationTime;
+    final boolean store;
+
+    int method;
+    long crc;
+    long compressedSize;
+    long uncompressedSize;
+    long offset;
+
+    Entry(String name, Path file, long size, long modificationTime, boolean store)
+    {
+      this.name = name;
+      this.file = file;
+      this.size = size;
+      this.modificationTime = modificationTime;
+      this.store = store;
+    }
+  }
+
+  private static class CompressedData
+  {
+    final int method;
+    final long crc;
+    final long uncompressedSize;
+    final byte[] data;
+    final int length;
+
+    CompressedData(int method, long crc, long uncompressedSize, byte[] data, int length)
+    {
+      this.method = method;
+      this.crc = crc;
+      this.uncompressedSize = uncompressedSize;
+      this.data = data;
+      this.length = length;
+    }
+  }
+
+  /** Sequential archive writer; keeps written entries for central directory. */
+  private static class Writer
+  {
+    private final SeekableByteChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final List<Entry> writtenEntries = new ArrayList<>();
+
+    Writer(SeekableByteChannel channel)
+    {
+      this.channel = channel;
+    }
+
+    /** Write directory, if compressed data is null, or file entry compressed by a worker. */
+    void write(Entry entry, CompressedData compressedData) throws IOException
+    {
+      entry.offset = channel.position();
+      if(compressedData != null) {
+        entry.method = compressedData.method;
+        entry.crc = compressedData.crc;
+        entry.compressedSize = compressedData.length;
+        entry.uncompressedSize = compressedData.uncompressedSize;
+      }
+      else {
+        entry.method = ZipEntry.STORED;
+      }
+      writeLocalHeader(entry, false);
+      if(compressedData != null) {
+        write(ByteBuffer.wrap(compressedData.data, 0, compressedData.length));
+      }
+      writtenEntries.add(entry);
+    }
+
+    /**
+     * Compress large file while writing it. File is read sequentially, by writer, and its blocks deflated by workers; only
+     * a bounded window of blocks is in flight. Since CRC and sizes are not known in advance, local header is written with
+     * ZIP64 sizes placeholders and patched after data.
+     */
+    void stream(Entry entry, FilesUtil files, ExecutorService executor, int window) throws IOException
+    {
+      entry.offset = channel.position();
+      entry.method = entry.store ? ZipEntry.STORED : ZipEntry.DEFLATED;
+      writeLocalHeader(entry, true);
+
+      CRC32 crc = new CRC32();
+      try (InputStream inputStream = files.getInputStream(entry.file)) {
+        if(entry.store) {
+          byte[] buffer = new byte[BUFFER_SIZE];
+          int length;
+          while((length = inputStream.read(buffer)) != -1) {
+            crc.update(buffer, 0, length);
+            entry.uncompressedSize += length;
+            write(ByteBuffer.wrap(buffer, 0, length));
+          }
+        }
+        else {
+          Deque<Future<CompressedData>> blocks = new ArrayDeque<>();
+          byte[] previousBlock = null;
+          byte[] block = new byte[BLOCK_SIZE];
+          int length = readBlock(inputStream, block);
+          for(;;) {
+            crc.update(block, 0, length);
+            entry.uncompressedSize += length;
+            // read ahead next block to know if current one is the last
+            byte[] nextBlock = new byte[BLOCK_SIZE];
+            int nextLength = length == BLOCK_SIZE ? readBlock(inputStream, nextBlock) : 0;
+            boolean last = nextLength == 0;
+
+            byte[] currentBlock = block;
+            int currentLength = length;
+            byte[] dictionary = previousBlock;
+            if(blocks.size() == window) {
+              writeBlock(blocks.removeFirst());
+            }
+            blocks.addLast(executor.submit(() -> deflateBlock(currentBlock, currentLength, dictionary, last)));
+            if(last) {
+              break;
+            }
+            previousBlock = block;
+            block = nextBlock;
+            length = nextLength;
+          }
+          while(!blocks.isEmpty()) {
+            writeBlock(blocks.removeFirst());
+          }
+        }
+      }
+      entry.crc = crc.getValue();
+      entry.compressedSize = channel.position() - entry.offset - localHeaderSize(entry, true);
+
+      long endPosition = channel.position();
+      header.clear();
+      header.putInt((int)entry.crc);
+      header.flip();
+      channel.position(entry.offset + 14);
+      write(header);
+
+      header.clear();
+      header.putLong(entry.uncompressedSize);
+      header.putLong(entry.compressedSize);
+      header.flip();
+      channel.position(entry.offset + 30 + utf8(entry.name).length + 4);
+      write(header);
+      channel.position(endPosition);
+
+      writtenEntries.add(entry);
+    }
+
+    private void writeBlock(Future<CompressedData> block) throws IOException
+    {
+      CompressedData compressedData = get(block);
+      write(ByteBuffer.wrap(compressedData.data, 0, compressedData.length));
+    }
+
+    /** Fill block from input stream and return block length, less than block size only at end of stream. */
+    private static int readBlock(InputStream inputStream, byte[] block) throws IOException
+    {
+      int length = 0;
+      int count;
+      while(length < block.length && (count = inputStream.read(block, length, block.length - length)) != -1) {
+        length += count;
+      }
+      return length;
+    }
+
+    void finish() throws IOException
+    {
+      long centralDirectoryOffset = channel.position();
+      for(Entry entry : writtenEntries) {
+        writeCentralHeader(entry);
+      }
+      long centralDirectorySize = channel.position() - centralDirectoryOffset;
+      int entriesCount = writtenEntries.size();
+
+      boolean zip64 = entriesCount >= ZIP32_ENTRIES_LIMIT || centralDirectoryOffset >= ZIP32_LIMIT || centralDirectorySize >= ZIP32_LIMIT;
+      if(zip64) {
+        long zip64EndOffset = channel.position();
+        header.clear();
+        header.putInt(ZIP64_END_SIGNATURE);
+        header.putLong(44);
+        header.putShort((short)ZIP64_VERSION);
+        header.putShort((short)ZIP64_VERSION);
+        header.putInt(0);
+        header.putInt(0);
+        header.putLong(entriesCount);
+        header.putLong(entriesCount);
+        header.putLong(centralDirectorySize);
+        header.putLong(centralDirectoryOffset);
+
+        header.putInt(ZIP64_LOCATOR_SIGNATURE);
+        header.putInt(0);
+        header.putLong(zip64EndOffset);
+        header.putInt(1);
+        header.flip();
+        write(header);
+      }
+
+      header.clear();
+      header.putInt(END_SIGNATURE);
+      header.putShort((short)0);
+      header.putShort((short)0);
+      header.putShort((short)(zip64 ? ZIP32_ENTRIES_LIMIT : entriesCount));
+      header.putShort((short)(zip64 ? ZIP32_ENTRIES_LIMIT : entriesCount));
+      header.putInt((int)(zip64 ? ZIP32_LIMIT : centralDirectorySize));
+      header.putInt((int)(zip64 ? ZIP32_LIMIT : centralDirectoryOffset));
+      header.putShort((short)0);
+      header.flip();
+      write(header);
+    }
+
+    private void writeLocalHeader(Entry entry, boolean streamed) throws IOException
+    {
+      byte[] name = utf8(entry.name);
+      header.clear();
+      header.putInt(LOCAL_HEADER_SIGNATURE);
+      header.putShort((short)(streamed ? ZIP64_VERSION : VERSION));
+      header.putShort((short)UTF8_FLAG);
+      header.putShort((short)entry.method);
+      header.putInt(dosTime(entry.modificationTime));
+      header.putInt((int)entry.crc);
+      header.putInt((int)(streamed ? ZIP32_LIMIT : entry.compressedSize));
+      header.putInt((int)(streamed ? ZIP32_LIMIT : entry.uncompressedSize));
+      header.putShort((short)name.length);
+      header.putShort((short)(streamed ? 20 : 0));
+      header.put(name);
+      if(streamed) {
+        header.putShort((short)ZIP64_EXTRA_ID);
+        header.putShort((short)16);
+        header.putLong(0);
+        header.putLong(0);
+      }
+      header.flip();
+      write(header);
+    }
+
+    private static int localHeaderSize(Entry entry, boolean streamed)
+    {
+      return 30 + utf8(entry.name).length + (streamed ? 20 : 0);
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException
+    {
+      boolean zip64Sizes = entry.compressedSize >= ZIP32_LIMIT || entry.uncompressedSize >= ZIP32_LIMIT;
+      boolean zip64Offset = entry.offset >= ZIP32_LIMIT;
+      int extraSize = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+      byte[] name = utf8(entry.name);
+
+      header.clear();
+      header.putInt(CENTRAL_HEADER_SIGNATURE);
+      header.putShort((short)(extraSize > 0 ? ZIP64_VERSION : VERSION));
+      header.putShort((short)(extraSize > 0 ? ZIP64_VERSION : VERSION));
+      header.putShort((short)UTF8_FLAG);
+      header.putShort((short)entry.method);
+      header.putInt(dosTime(entry.modificationTime));
+      header.putInt((int)entry.crc);
+      header.putInt((int)(zip64Sizes ? ZIP32_LIMIT : entry.compressedSize));
+      header.putInt((int)(zip64Sizes ? ZIP32_LIMIT : entry.uncompressedSize));
+      header.putShort((short)name.length);
+      header.putShort((short)(extraSize > 0 ? extraSize + 4 : 0));
+      header.putShort((short)0);
+      header.putShort((short)0);
+      header.putShort((short)0);
+      header.putInt(entry.file == null ? DIRECTORY_ATTRIBUTE : 0);
+      header.putInt((int)(zip64Offset ? ZIP32_LIMIT : entry.offset));
+      header.put(name);
+      if(extraSize > 0) {
+        header.putShort((short)ZIP64_EXTRA_ID);
+        header.putShort((short)extraSize);
+        if(zip64Sizes) {
+          header.putLong(entry.uncompressedSize);
+          header.putLong(entry.compressedSize);
+        }
+        if(zip64Offset) {
+          header.putLong(entry.offset);
+        }
+      }
+      header.flip();
+      write(header);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException
+    {
+      while(buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+
+    private static byte[] utf8(String name)
+    {
+      return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Convert time to MS-DOS date and time format used by ZIP headers: date in high word and time in low word. */
+    private static int dosTime(long time)
+    {
+      LocalDateTime dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+      if(dateTime.getYear() < 1980) {
+        return (1 << 21) | (1 << 16);
+      }
+      int date = ((dateTime.getYear() - 1980) << 9) | (dateTime.getMonthValue() << 5) | dateTime.getDayOfMonth();
+      int clock = (dateTime.getHour() << 11) | (dateTime.getMinute() << 5) | (dateTime.getSecond() >> 1);
+      return (date << 16) | clock;
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+  // unpack
+
+  public static void unpack(FilesUtil files, Path zipFile, Path targetDir, int parallelism) throws IOException
+  {
+    if(parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism should be positive.");
+    }
+    Path rootDir = targetDir.toAbsolutePath().normalize();
+
+    // ZipFile needs a java.io.File so archive should be on default file system; target directory can be on any
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      List<ZipEntry> fileEntries = new ArrayList<>();
+      List<Path> targetFiles = new ArrayList<>();
+      Set<Path> dirs = new TreeSet<>();
+      dirs.add(rootDir);
+
+      Enumeration<? extends ZipEntry> zipEntries = zip.entries();
+      while(zipEntries.hasMoreElements()) {
+        ZipEntry entry = zipEntries.nextElement();
+        Path target = rootDir.resolve(entry.getName()).normalize();
+        if(!target.startsWith(rootDir)) {
+          throw new IOException(Strings.format("Archive entry %s is outside target directory.", entry.getName()));
+        }
+        if(entry.isDirectory()) {
+          dirs.add(target);
+          continue;
+        }
+        dirs.add(target.getParent());
+        fileEntries.add(entry);
+        targetFiles.add(target);
+      }
+
+      // directories are sorted so parents come first; create them before any worker starts
+      for(Path dir : dirs) {
+        files.createDirectories(dir);
+      }
+
+      Failures failures = new Failures();
+      ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+      try {
+        for(int i = 0; i < fileEntries.size(); ++i) {
+          ZipEntry entry = fileEntries.get(i);
+          Path targetFile = targetFiles.get(i);
+          executor.execute(() -> {
+            try {
+              extract(files, zip, entry, targetFile);
+            }
+            catch(IOException e) {
+              failures.add(e);
+            }
+          });
+        }
+        FilesUtil.awaitTermination(executor);
+      }
+      finally {
+        executor.shutdownNow();
+      }
+      failures.throwIfAny(Strings.format("Fail to unpack archive %s.", zipFile));
+    }
+  }
+
+  private static void extract(FilesUtil files, ZipFile zip, ZipEntry entry, Path targetFile) throws IOException
+  {
+    try (InputStream inputStream = zip.getInputStream(entry); OutputStream outputStream = files.getFileSystem().provider().newOutputStream(targetFile)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int length;
+      while((length = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, length);
+      }
+    }
+    if(entry.getTime() != -1) {
+      files.getFileSystem().provider().getFileAttributeView(targetFile, BasicFileAttributeView.class).setTimes(FileTime.fromMillis(entry.getTime()), null, null);
+    }
+  }
+}
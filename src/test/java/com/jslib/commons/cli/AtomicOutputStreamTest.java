@@ -0,0 +1,179 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AtomicOutputStreamTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path dir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    dir = folder.newFolder("site").toPath();
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+  }
+
+  @Test
+  public void GivenCommit_WhenAtomicWrite_ThenContentReplaced() throws IOException
+  {
+    // given
+    Path file = dir.resolve("index.htm");
+    write(file, "old");
+
+    // when
+    try (AtomicWriter writer = files.getAtomicWriter(file)) {
+      writer.write("new");
+      writer.commit();
+    }
+
+    // then
+    assertThat(read(file), equalTo("new"));
+    assertThat(count(dir), equalTo(1L));
+  }
+
+  @Test
+  public void GivenNoCommit_WhenAtomicWrite_ThenOldContentAndNoTempFile() throws IOException
+  {
+    // given
+    Path file = dir.resolve("index.htm");
+    write(file, "old");
+
+    // when
+    try (AtomicOutputStream stream = files.getAtomicOutputStream(file)) {
+      stream.write("partial".getBytes(StandardCharsets.UTF_8));
+    }
+
+    // then
+    assertThat(read(file), equalTo("old"));
+    assertThat(count(dir), equalTo(1L));
+  }
+
+  @Test
+  public void GivenWriteBatch_WhenCommit_ThenFilesVisibleOnlyAfterBatchCommit() throws IOException
+  {
+    // given
+    Path file1 = dir.resolve("page/index.htm");
+    Path file2 = dir.resolve("page/index.css");
+
+    // when
+    try (WriteBatch batch = files.beginWriteBatch()) {
+      try (AtomicWriter writer = batch.getWriter(file1)) {
+        writer.write("<h1>index</h1>");
+        writer.commit();
+      }
+      try (AtomicWriter writer = batch.getWriter(file2)) {
+        writer.write("body {}");
+        writer.commit();
+      }
+      assertFalse(Files.exists(file1));
+      batch.commit();
+    }
+
+    // then
+    assertThat(read(file1), equalTo("<h1>index</h1>"));
+    assertThat(read(file2), equalTo("body {}"));
+    assertThat(count(dir.resolve("page")), equalTo(2L));
+  }
+
+  @Test
+  public void GivenEmptyWriteBatch_WhenCommit_ThenNothingWritten() throws IOException
+  {
+    // given
+    WriteBatch batch = files.beginWriteBatch();
+
+    // when
+    batch.commit();
+
+    // then
+    assertThat(batch.size(), equalTo(0));
+    assertThat(count(dir), equalTo(0L));
+  }
+
+  @Test
+  public void GivenWriteBatchNotCommitted_WhenClose_ThenNothingWritten() throws IOException
+  {
+    // given
+    Path file = dir.resolve("index.htm");
+
+    // when
+    try (WriteBatch batch = files.beginWriteBatch()) {
+      try (AtomicWriter writer = batch.getWriter(file)) {
+        writer.write("<h1>index</h1>");
+        writer.commit();
+      }
+    }
+
+    // then
+    assertFalse(Files.exists(file));
+    assertThat(count(dir), equalTo(0L));
+  }
+
+  @Test
+  public void GivenTargetPermissions_WhenAtomicAndBatchWrite_ThenPermissionsKept() throws IOException
+  {
+    // given
+    Path file1 = dir.resolve("index.htm");
+    Path file2 = dir.resolve("index.css");
+    write(file1, "old");
+    write(file2, "old");
+    Files.setPosixFilePermissions(file1, PosixFilePermissions.fromString("rwxr-x---"));
+    Files.setPosixFilePermissions(file2, PosixFilePermissions.fromString("r--r--r--"));
+
+    // when
+    try (AtomicWriter writer = files.getAtomicWriter(file1)) {
+      writer.write("new");
+      writer.commit();
+    }
+    try (WriteBatch batch = files.beginWriteBatch()) {
+      try (AtomicWriter writer = batch.getWriter(file2)) {
+        writer.write("new");
+        writer.commit();
+      }
+      batch.commit();
+    }
+
+    // then
+    assertThat(read(file1), equalTo("new"));
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file1)), equalTo("rwxr-x---"));
+    assertThat(read(file2), equalTo("new"));
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file2)), equalTo("r--r--r--"));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException
+  {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+
+  private static long count(Path dir) throws IOException
+  {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.count();
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CachedFilesUtilTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private CachedFilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("root").toPath();
+    files = new CachedFilesUtil(FileSystems.getDefault(), new Console(), false);
+  }
+
+  @Test
+  public void GivenRepeatedExists_WhenExists_ThenCacheHit()
+  {
+    // given
+    Path dir = rootDir.resolve("dir");
+
+    // when
+    boolean firstExists = files.exists(dir);
+    boolean secondExists = files.exists(dir);
+
+    // then
+    assertFalse(firstExists);
+    assertFalse(secondExists);
+    assertThat(files.getMissCount(), equalTo(1L));
+    assertThat(files.getHitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void GivenCachedMissingDir_WhenCreateDirectories_ThenExistsAndIsDirectory() throws IOException
+  {
+    // given
+    Path dir = rootDir.resolve("dir/subdir");
+    assertFalse(files.exists(dir));
+
+    // when
+    files.createDirectories(dir);
+
+    // then
+    assertTrue(files.exists(dir));
+    assertTrue(files.isDirectory(dir));
+  }
+
+  @Test
+  public void GivenCachedListing_WhenWriteFile_ThenListingInvalidated() throws IOException
+  {
+    // given
+    assertThat(list(rootDir).size(), equalTo(0));
+
+    // when
+    files.copy("content", rootDir.resolve("file.txt"));
+
+    // then
+    assertThat(list(rootDir).size(), equalTo(1));
+  }
+
+  @Test
+  public void GivenExternalChange_WhenInvalidate_ThenCacheRefreshed() throws IOException
+  {
+    // given
+    Path file = rootDir.resolve("file.txt");
+    assertFalse(files.exists(file));
+    Files.createFile(file);
+    assertFalse(files.exists(file));
+
+    // when
+    files.invalidate(file);
+
+    // then
+    assertTrue(files.exists(file));
+  }
+
+  @Test
+  public void GivenCachedSubtreeAndPrefixSibling_WhenInvalidateTree_ThenOnlySubtreeRefreshed() throws IOException
+  {
+    // given
+    Path dir = rootDir.resolve("dir");
+    Path file = dir.resolve("sub/file.txt");
+    Path sibling = rootDir.resolve("dir.txt");
+    assertFalse(files.exists(file));
+    assertFalse(files.exists(sibling));
+    Files.createDirectories(file.getParent());
+    Files.createFile(file);
+    Files.createFile(sibling);
+
+    // when
+    files.invalidateTree(dir);
+
+    // then
+    assertTrue(files.exists(file));
+    assertFalse(files.exists(sibling));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private List<Path> list(Path dir) throws IOException
+  {
+    List<Path> list = new ArrayList<>();
+    for(Path file : files.listFiles(dir)) {
+      list.add(file);
+    }
+    return list;
+  }
+}
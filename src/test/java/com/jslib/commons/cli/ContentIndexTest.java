@@ -0,0 +1,126 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ContentIndexTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private Path indexFile;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("project").toPath();
+    indexFile = folder.getRoot().toPath().resolve("index/project.idx");
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    write(rootDir.resolve("page/dialog.htm"), "<div w:compo='res/compo/dialog'></div>");
+    write(rootDir.resolve("page/index.htm"), "<div w:compo='res/compo/menu'></div>");
+  }
+
+  @Test
+  public void GivenMissingIndex_WhenFind_ThenMatchingFilesAndIndexSaved() throws IOException
+  {
+    // given
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(rootDir, ".htm", "res/compo/dialog", indexFile);
+
+    // then
+    assertThat(foundFiles, contains(rootDir.resolve("page/dialog.htm")));
+    assertTrue(Files.exists(indexFile));
+  }
+
+  @Test
+  public void GivenChangedFile_WhenFind_ThenIndexUpdated() throws IOException
+  {
+    // given
+    files.findFilesByContentPattern(rootDir, ".htm", "res/compo/dialog", indexFile);
+    write(rootDir.resolve("page/index.htm"), "<div w:compo='res/compo/dialog'></div><div></div>");
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(rootDir, ".htm", "res/compo/dialog", indexFile);
+
+    // then
+    assertThat(foundFiles, contains(rootDir.resolve("page/dialog.htm"), rootDir.resolve("page/index.htm")));
+  }
+
+  @Test
+  public void GivenDeletedFile_WhenFind_ThenNotFound() throws IOException
+  {
+    // given
+    files.findFilesByContentPattern(rootDir, ".htm", "res/compo/dialog", indexFile);
+    Files.delete(rootDir.resolve("page/dialog.htm"));
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(rootDir, ".htm", "res/compo/dialog", indexFile);
+
+    // then
+    assertThat(foundFiles, empty());
+  }
+
+  @Test
+  public void GivenCorruptIndex_WhenFind_ThenFallbackToRebuild() throws IOException
+  {
+    // given
+    write(indexFile, "corrupt index");
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(rootDir, ".htm", "res/compo/menu", indexFile);
+
+    // then
+    assertThat(foundFiles, contains(rootDir.resolve("page/index.htm")));
+  }
+
+  @Test
+  public void GivenHugeTrigramsCount_WhenFind_ThenFallbackToRebuild() throws IOException
+  {
+    // given
+    Files.createDirectories(indexFile.getParent());
+    try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(indexFile))) {
+      outputStream.writeInt(0x4A534349);
+      outputStream.writeInt(1);
+      outputStream.writeUTF(rootDir.toString());
+      outputStream.writeInt(1);
+      outputStream.writeUTF("page/index.htm");
+      outputStream.writeLong(0);
+      outputStream.writeLong(0);
+      outputStream.writeLong(0);
+      outputStream.writeInt(Integer.MAX_VALUE);
+    }
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(rootDir, ".htm", "res/compo/menu", indexFile);
+
+    // then
+    assertThat(foundFiles, contains(rootDir.resolve("page/index.htm")));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,95 @@
+package com.jslib.commons.cli;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class ContentMatcherTest
+{
+  @Test
+  public void GivenContentWithPattern_WhenMatches_ThenTrue() throws IOException
+  {
+    // given
+    ContentMatcher matcher = new ContentMatcher("res/compo/dialog");
+
+    // when
+    boolean matches = matcher.matches(stream("<div w:compo='res/compo/dialog'></div>"));
+
+    // then
+    assertTrue(matches);
+  }
+
+  @Test
+  public void GivenContentWithoutPattern_WhenMatches_ThenFalse() throws IOException
+  {
+    // given
+    ContentMatcher matcher = new ContentMatcher("res/compo/dialog");
+
+    // when
+    boolean matches = matcher.matches(stream("<div w:compo='res/compo/dialoc'></div>"));
+
+    // then
+    assertFalse(matches);
+  }
+
+  @Test
+  public void GivenPatternCrossingChunksBoundary_WhenMatches_ThenTrue() throws IOException
+  {
+    // given
+    String pattern = "res/compo/dialog";
+    for(int offset = 0; offset < 40; ++offset) {
+      StringBuilder content = new StringBuilder();
+      for(int i = 0; i < offset; ++i) {
+        content.append('x');
+      }
+      content.append(pattern);
+      content.append("yyyy");
+      ContentMatcher matcher = new ContentMatcher(pattern, 8);
+
+      // when
+      boolean matches = matcher.matches(stream(content.toString()));
+
+      // then
+      assertTrue("Match at offset " + offset, matches);
+    }
+  }
+
+  @Test
+  public void GivenNonAsciiPattern_WhenMatches_ThenTrue() throws IOException
+  {
+    // given
+    ContentMatcher matcher = new ContentMatcher("caf\u00e9");
+
+    // when
+    boolean matches = matcher.matches(stream("<p>caf\u00e9 cr\u00e8me</p>"));
+
+    // then
+    assertTrue(matches);
+  }
+
+  @Test
+  public void GivenEmptyPattern_WhenMatches_ThenTrue() throws IOException
+  {
+    // given
+    ContentMatcher matcher = new ContentMatcher("");
+
+    // when
+    boolean matches = matcher.matches(stream(""));
+
+    // then
+    assertTrue(matches);
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static InputStream stream(String content)
+  {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,135 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jslib.commons.cli.IoStats.Operation;
+
+public class CountingFileSystemTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private CountingFileSystem fileSystem;
+  private FilesUtil files;
+  private Path sourceDir;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    fileSystem = new CountingFileSystem(FileSystems.getDefault());
+    files = new FilesUtil(fileSystem, new Console());
+
+    Path dir = folder.newFolder("source").toPath();
+    for(int i = 0; i < 10; ++i) {
+      Files.write(dir.resolve("file" + i), new byte[100]);
+    }
+    sourceDir = fileSystem.getPath(dir.toString());
+  }
+
+  @Test
+  public void GivenSourceTree_WhenCopyFiles_ThenStatAndListCounted() throws IOException
+  {
+    // given
+    Path targetDir = fileSystem.getPath(folder.getRoot().getPath(), "target");
+
+    // when
+    files.copyFiles(sourceDir, targetDir, false);
+
+    // then
+    IoStats stats = fileSystem.getStats();
+    assertTrue(Files.isRegularFile(targetDir.resolve("file9")));
+    assertThat(stats.getCount(Operation.LIST), greaterThanOrEqualTo(1L));
+    assertThat(stats.getCount(Operation.STAT), greaterThanOrEqualTo(10L));
+  }
+
+  @Test
+  public void GivenSourceTree_WhenCleanDirectory_ThenDeletesCounted() throws IOException
+  {
+    // given
+
+    // when
+    files.cleanDirectory(sourceDir, false);
+
+    // then
+    IoStats stats = fileSystem.getStats();
+    assertFalse(Files.exists(sourceDir.resolve("file0")));
+    assertThat(stats.getCount(Operation.DELETE), equalTo(10L));
+    assertThat(stats.getPercentileNanos(Operation.DELETE, 100), greaterThanOrEqualTo(stats.getPercentileNanos(Operation.DELETE, 50)));
+  }
+
+  @Test
+  public void GivenFile_WhenReadAndWrite_ThenBytesCounted() throws IOException
+  {
+    // given
+    Path file = sourceDir.resolve("file.txt");
+
+    // when
+    files.copy("counting file system", file);
+    String content;
+    try (BufferedReader reader = new BufferedReader(files.getReader(file))) {
+      content = reader.readLine();
+    }
+
+    // then
+    IoStats stats = fileSystem.getStats();
+    assertThat(content, equalTo("counting file system"));
+    assertThat(stats.getCount(Operation.OPEN), equalTo(2L));
+    assertThat(stats.getBytes(Operation.WRITE), equalTo(20L));
+    assertThat(stats.getBytes(Operation.READ), equalTo(20L));
+
+    List<String> report = stats.report();
+    assertTrue(report.size() >= 3);
+  }
+
+  @Test
+  public void GivenWrappedFileSystem_WhenCopy_ThenChannelTransferCounted() throws IOException
+  {
+    // given
+    CachedFilesUtil cachedFiles = new CachedFilesUtil(FileSystems.getDefault(), new Console(), false);
+    CountingFileSystem countingFileSystem = new CountingFileSystem(cachedFiles.getFileSystem());
+    cachedFiles.setFileSystem(countingFileSystem);
+    Path sourceFile = countingFileSystem.getPath(sourceDir.toString(), "file0");
+    Path targetFile = countingFileSystem.getPath(folder.getRoot().getPath(), "target", "file0");
+
+    // when
+    cachedFiles.copy(sourceFile, targetFile);
+
+    // then
+    IoStats stats = countingFileSystem.getStats();
+    assertTrue(cachedFiles.exists(targetFile));
+    assertThat(Files.size(targetFile), equalTo(100L));
+    assertThat(stats.getBytes(Operation.READ), equalTo(100L));
+    assertThat(stats.getBytes(Operation.WRITE), equalTo(100L));
+    cachedFiles.close();
+  }
+
+  @Test
+  public void GivenWrappedFileSystem_WhenGetScheme_ThenOwnScheme()
+  {
+    // given
+    CountingFileSystem countingFileSystem = new CountingFileSystem(FileSystems.getDefault());
+
+    // when
+    String scheme = countingFileSystem.provider().getScheme();
+
+    // then
+    assertThat(scheme, equalTo("counting"));
+    assertThat(FileSystems.getDefault().provider().getScheme(), equalTo("file"));
+  }
+}
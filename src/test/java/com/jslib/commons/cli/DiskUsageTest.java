@@ -0,0 +1,96 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DiskUsageTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("root").toPath();
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    write(rootDir.resolve("root.txt"), 10);
+    write(rootDir.resolve("build/classes/a.class"), 1000);
+    write(rootDir.resolve("build/classes/b.class"), 2000);
+    write(rootDir.resolve("build/build.log"), 500);
+    write(rootDir.resolve("cache/index"), 4000);
+    Files.createDirectories(rootDir.resolve("empty"));
+  }
+
+  @Test
+  public void GivenTree_WhenDiskUsage_ThenTotalsAndBreakdown() throws IOException
+  {
+    // given
+
+    // when
+    DiskUsage usage = files.diskUsage(rootDir, 4);
+
+    // then
+    assertThat(usage.getBytes(), equalTo(7510L));
+    assertThat(usage.getFilesCount(), equalTo(5L));
+    assertThat(usage.getDirectoriesCount(), equalTo(4L));
+    assertThat(usage.getDirectory("build").getBytes(), equalTo(3500L));
+    assertThat(usage.getDirectory("build/classes").getFilesCount(), equalTo(2L));
+    assertThat(usage.getDirectory("empty").getBytes(), equalTo(0L));
+  }
+
+  @Test
+  public void GivenDepthCap_WhenDiskUsage_ThenBreakdownLimitedAndTotalsComplete() throws IOException
+  {
+    // given
+
+    // when
+    DiskUsage usage = files.diskUsage(rootDir, 1, null, 2);
+
+    // then
+    assertThat(usage.getBytes(), equalTo(7510L));
+    assertThat(usage.getDirectories().size(), equalTo(3));
+    assertThat(usage.getDirectory("build").getBytes(), equalTo(3500L));
+    assertNull(usage.getDirectory("build/classes"));
+  }
+
+  @Test
+  public void GivenExcludes_WhenGetLargest_ThenSortedTopSubtrees() throws IOException
+  {
+    // given
+
+    // when
+    DiskUsage usage = files.diskUsage(rootDir, -1, path -> path.getFileName().toString().endsWith(".log"), 2);
+    List<DiskUsage.Entry> largest = usage.getLargest(2);
+
+    // then
+    assertThat(usage.getBytes(), equalTo(7010L));
+    assertThat(largest.size(), equalTo(2));
+    assertThat(largest.get(0).getPath(), equalTo("cache"));
+    assertThat(largest.get(1).getPath(), equalTo("build"));
+    assertThat(largest.get(1).getBytes(), equalTo(3000L));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, int size) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, new byte[size]);
+  }
+}
@@ -0,0 +1,90 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileFinderTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private FileFinder finder;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("project").toPath();
+    finder = new FileFinder(new FilesUtil(FileSystems.getDefault(), new Console()));
+
+    create(rootDir.resolve("project.xml"));
+    create(rootDir.resolve("page/index.htm"));
+    create(rootDir.resolve("page/index.css"));
+    create(rootDir.resolve("page/dialog/dialog.htm"));
+  }
+
+  @Test
+  public void GivenManyQueries_WhenFind_ThenAllAnswered() throws IOException
+  {
+    // given
+    FileFinder.Query descriptor = finder.addNamePattern(Pattern.compile("^project\\.xml$"), true);
+    FileFinder.Query pages = finder.addExtension(".htm", false);
+    FileFinder.Query styles = finder.addGlob("page/*.css", false);
+
+    // when
+    finder.find(rootDir);
+
+    // then
+    assertThat(descriptor.getFile(), equalTo(rootDir.resolve("project.xml")));
+    assertThat(pages.getFiles(), containsInAnyOrder(rootDir.resolve("page/index.htm"), rootDir.resolve("page/dialog/dialog.htm")));
+    assertThat(styles.getFiles(), hasSize(1));
+  }
+
+  @Test
+  public void GivenFirstOnlyQuery_WhenFind_ThenSingleFile() throws IOException
+  {
+    // given
+    FileFinder.Query page = finder.addExtension(".htm", true);
+
+    // when
+    finder.find(rootDir);
+
+    // then
+    assertThat(page.getFiles(), hasSize(1));
+  }
+
+  @Test
+  public void GivenNoMatch_WhenFind_ThenNullFile() throws IOException
+  {
+    // given
+    FileFinder.Query script = finder.addExtension(".js", true);
+
+    // when
+    finder.find(rootDir);
+
+    // then
+    assertThat(script.getFile(), nullValue());
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void create(Path file) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.createFile(file);
+  }
+}
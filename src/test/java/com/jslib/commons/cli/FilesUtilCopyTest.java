@@ -0,0 +1,118 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilesUtilCopyTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path sourceDir;
+  private Path targetDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    sourceDir = folder.newFolder("source").toPath();
+    targetDir = folder.getRoot().toPath().resolve("target");
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+  }
+
+  @Test
+  public void GivenBinaryFile_WhenCopy_ThenSameBytes() throws IOException
+  {
+    // given
+    byte[] content = new byte[256 * 1024 + 17];
+    for(int i = 0; i < content.length; ++i) {
+      content[i] = (byte)i;
+    }
+    Path sourceFile = sourceDir.resolve("image.png");
+    Files.write(sourceFile, content);
+    Path targetFile = targetDir.resolve("media/image.png");
+
+    // when
+    files.copy(sourceFile, targetFile);
+
+    // then
+    assertThat(Files.readAllBytes(targetFile), equalTo(content));
+  }
+
+  @Test
+  public void GivenLatin1TextFile_WhenCopyTextToUTF8_ThenTranscoded() throws IOException
+  {
+    // given
+    Path sourceFile = sourceDir.resolve("text.txt");
+    Files.write(sourceFile, "caf\u00e9".getBytes(StandardCharsets.ISO_8859_1));
+    Path targetFile = targetDir.resolve("text.txt");
+
+    // when
+    files.copyText(sourceFile, StandardCharsets.ISO_8859_1, targetFile, StandardCharsets.UTF_8);
+
+    // then
+    assertThat(new String(Files.readAllBytes(targetFile), StandardCharsets.UTF_8), equalTo("caf\u00e9"));
+  }
+
+  @Test
+  public void GivenHardLinkStrategy_WhenCopyFiles_ThenTargetIsSameFile() throws IOException
+  {
+    // given
+    Path sourceFile = sourceDir.resolve("res/index.htm");
+    Files.createDirectories(sourceFile.getParent());
+    Files.write(sourceFile, "<h1>index</h1>".getBytes(StandardCharsets.UTF_8));
+
+    // when
+    files.copyFiles(sourceDir, targetDir, false, 2, CopyStrategy.HARD_LINK);
+
+    // then
+    assertTrue(Files.isSameFile(sourceFile, targetDir.resolve("res/index.htm")));
+  }
+
+  @Test
+  public void GivenReflinkStrategy_WhenCopyFiles_ThenSameContent() throws IOException
+  {
+    // given
+    Path sourceFile = sourceDir.resolve("res/index.htm");
+    Files.createDirectories(sourceFile.getParent());
+    Files.write(sourceFile, "<h1>index</h1>".getBytes(StandardCharsets.UTF_8));
+
+    // when
+    // falls back to plain copy where file system has no copy-on-write support
+    files.copyFiles(sourceDir, targetDir, false, CopyStrategy.REFLINK);
+
+    // then
+    assertThat(new String(Files.readAllBytes(targetDir.resolve("res/index.htm")), StandardCharsets.UTF_8), equalTo("<h1>index</h1>"));
+  }
+
+  @Test
+  public void GivenSymbolicLink_WhenReflinkCopyFiles_ThenTargetIsRegularFile() throws IOException
+  {
+    // given
+    Path sourceFile = sourceDir.resolve("res/index.htm");
+    Files.createDirectories(sourceFile.getParent());
+    Files.write(sourceFile, "<h1>index</h1>".getBytes(StandardCharsets.UTF_8));
+    Files.createSymbolicLink(sourceDir.resolve("res/home.htm"), sourceFile);
+
+    // when
+    files.copyFiles(sourceDir, targetDir, false, CopyStrategy.REFLINK);
+
+    // then
+    Path targetFile = targetDir.resolve("res/home.htm");
+    assertFalse(Files.isSymbolicLink(targetFile));
+    assertThat(new String(Files.readAllBytes(targetFile), StandardCharsets.UTF_8), equalTo("<h1>index</h1>"));
+  }
+}
@@ -0,0 +1,83 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilesUtilLookupTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("project").toPath();
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    create(rootDir.resolve("a/b/c/deep.xml"));
+    create(rootDir.resolve("lib/vendor.xml"));
+    create(rootDir.resolve("src/project.xml"));
+    create(rootDir.resolve("src/main/index.htm"));
+  }
+
+  @Test
+  public void GivenNestedMatches_WhenGetNearestFileByExtension_ThenShallowestInNameOrder() throws IOException
+  {
+    // given
+
+    // when
+    Path file = files.getNearestFileByExtension(rootDir, ".xml", Integer.MAX_VALUE);
+
+    // then
+    assertThat(file, equalTo(rootDir.resolve("lib/vendor.xml")));
+  }
+
+  @Test
+  public void GivenPrunedDirectory_WhenFindNearestFile_ThenSkipIt() throws IOException
+  {
+    // given
+    Pattern pattern = Pattern.compile("\\.xml$");
+
+    // when
+    Path file = files.findNearestFile(rootDir, 2, path -> pattern.matcher(path.toString()).find(), dir -> dir.endsWith("lib"));
+
+    // then
+    assertThat(file, equalTo(rootDir.resolve("src/project.xml")));
+  }
+
+  @Test
+  public void GivenMatchBelowMaxDepth_WhenGetNearestFileByNamePattern_ThenNull() throws IOException
+  {
+    // given
+    Pattern pattern = Pattern.compile("^deep\\.xml$");
+
+    // when
+    Path file = files.getNearestFileByNamePattern(rootDir, pattern, 3);
+
+    // then
+    assertThat(file, nullValue());
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void create(Path file) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.createFile(file);
+  }
+}
@@ -0,0 +1,210 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilesUtilParallelTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path sourceDir;
+  private Path targetDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    sourceDir = folder.newFolder("source").toPath();
+    targetDir = folder.getRoot().toPath().resolve("target");
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+  }
+
+  @Test
+  public void GivenSourceTree_WhenParallelCopyFiles_ThenTargetTreeHasSameContent() throws IOException
+  {
+    // given
+    for(int i = 0; i < 20; ++i) {
+      write(sourceDir.resolve("dir" + (i % 4)).resolve("sub" + (i % 3)).resolve("file" + i + ".txt"), "content" + i);
+    }
+    Files.createDirectories(sourceDir.resolve("empty"));
+
+    // when
+    files.copyFiles(sourceDir, targetDir, false, 4);
+
+    // then
+    for(int i = 0; i < 20; ++i) {
+      assertThat(read(targetDir.resolve("dir" + (i % 4)).resolve("sub" + (i % 3)).resolve("file" + i + ".txt")), equalTo("content" + i));
+    }
+    assertTrue(Files.isDirectory(targetDir.resolve("empty")));
+  }
+
+  @Test
+  public void GivenMissingSourceDir_WhenParallelCopyFiles_ThenIOExceptionWithSuppressedFailures() throws IOException
+  {
+    // given
+    Path missingDir = sourceDir.resolve("missing");
+
+    // when
+    try {
+      files.copyFiles(missingDir, targetDir, false, 2);
+      fail("Missing source directory should throw IO exception.");
+    }
+    catch(IOException e) {
+      // then
+      assertThat(e.getSuppressed().length, equalTo(1));
+    }
+  }
+
+  @Test
+  public void GivenSourceTree_WhenParallelFindFilesByContentPattern_ThenSortedMatchingFiles() throws IOException
+  {
+    // given
+    for(int i = 0; i < 20; ++i) {
+      String content = i % 2 == 0 ? "<div w:compo='res/compo/dialog'></div>" : "<div></div>";
+      write(sourceDir.resolve("page" + (i % 3)).resolve("file" + i + ".htm"), content);
+      write(sourceDir.resolve("page" + (i % 3)).resolve("file" + i + ".css"), content);
+    }
+
+    // when
+    List<Path> foundFiles = files.findFilesByContentPattern(sourceDir, ".htm", "res/compo/dialog", 4);
+
+    // then
+    List<Path> expectedFiles = files.findFilesByContentPattern(sourceDir, ".htm", "res/compo/dialog");
+    Collections.sort(expectedFiles);
+    assertThat(foundFiles, hasSize(10));
+    assertThat(foundFiles, equalTo(expectedFiles));
+  }
+
+  @Test
+  public void GivenNestedExclude_WhenCleanDirectory_ThenKeepExcludedAndAncestors() throws IOException
+  {
+    // given
+    write(sourceDir.resolve("lib/keep/file.jar"), "jar");
+    write(sourceDir.resolve("lib/file.txt"), "text");
+    write(sourceDir.resolve("build/file.class"), "class");
+
+    // when
+    files.cleanDirectory(sourceDir, false, sourceDir.resolve("lib/keep"));
+
+    // then
+    assertTrue(Files.exists(sourceDir.resolve("lib/keep/file.jar")));
+    assertFalse(Files.exists(sourceDir.resolve("lib/file.txt")));
+    assertFalse(Files.exists(sourceDir.resolve("build")));
+  }
+
+  @Test
+  public void GivenSourceTree_WhenParallelCleanDirectory_ThenOnlyExcludedRemain() throws IOException
+  {
+    // given
+    for(int i = 0; i < 20; ++i) {
+      write(sourceDir.resolve("dir" + (i % 4)).resolve("sub" + (i % 3)).resolve("file" + i + ".txt"), "content" + i);
+    }
+    Path keptFile = sourceDir.resolve("dir1/sub1/file1.txt");
+
+    // when
+    files.cleanDirectory(sourceDir, false, 4, path -> path.equals(keptFile));
+
+    // then
+    assertTrue(Files.exists(keptFile));
+    assertFalse(Files.exists(sourceDir.resolve("dir0")));
+    assertFalse(Files.exists(sourceDir.resolve("dir1/sub0")));
+  }
+
+  @Test
+  public void GivenSourceTree_WhenCleanDirectoryDeferred_ThenEmptiedImmediatelyAndTrashDeleted() throws Exception
+  {
+    // given
+    for(int i = 0; i < 20; ++i) {
+      write(sourceDir.resolve("dir" + (i % 4)).resolve("file" + i + ".txt"), "content" + i);
+    }
+    write(sourceDir.resolve(".project.properties"), "name=test");
+
+    // when
+    Future<Void> deletion = files.cleanDirectoryDeferred(sourceDir, 2, path -> path.getFileName().toString().equals(".project.properties"));
+
+    // then
+    assertThat(list(sourceDir), hasSize(1));
+    deletion.get();
+    assertThat(list(folder.getRoot().toPath()), hasSize(1));
+  }
+
+  @Test
+  public void GivenLeftoverTrash_WhenCleanDirectoryDeferred_ThenOnlyActiveClaimKept() throws Exception
+  {
+    // given
+    write(sourceDir.resolve("file.txt"), "content");
+    Path root = folder.getRoot().toPath();
+    write(root.resolve(".source.trash.1.2").resolve("leftover.txt"), "leftover");
+    Path activeClaim = root.resolve(".source.trash.claimed.owner.1");
+    write(activeClaim.resolve("deleting.txt"), "deleting");
+
+    // when
+    files.cleanDirectoryDeferred(sourceDir, 2, path -> false).get();
+
+    // then
+    assertThat(list(root), containsInAnyOrder(sourceDir, activeClaim));
+    assertThat(list(sourceDir), hasSize(0));
+  }
+
+  @Test
+  public void GivenNestedExclude_WhenCleanDirectoryDeferred_ThenExcludedAndAncestorsKept() throws Exception
+  {
+    // given
+    write(sourceDir.resolve("dir/sub/keep.txt"), "keep");
+    write(sourceDir.resolve("dir/sub/delete.txt"), "delete");
+    write(sourceDir.resolve("dir/delete.txt"), "delete");
+    write(sourceDir.resolve("other/delete.txt"), "delete");
+
+    // when
+    files.cleanDirectoryDeferred(sourceDir, 2, path -> path.getFileName().toString().equals("keep.txt")).get();
+
+    // then
+    assertThat(list(sourceDir), contains(sourceDir.resolve("dir")));
+    assertThat(list(sourceDir.resolve("dir")), contains(sourceDir.resolve("dir/sub")));
+    assertThat(list(sourceDir.resolve("dir/sub")), contains(sourceDir.resolve("dir/sub/keep.txt")));
+    assertThat(list(folder.getRoot().toPath()), hasSize(1));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static List<Path> list(Path dir) throws IOException
+  {
+    try (Stream<Path> files = Files.list(dir)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException
+  {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,172 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilesUtilSyncTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path sourceDir;
+  private Path targetDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    sourceDir = folder.newFolder("source").toPath();
+    targetDir = folder.getRoot().toPath().resolve("target");
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    write(sourceDir.resolve("index.htm"), "<h1>index</h1>");
+    write(sourceDir.resolve("script/index.js"), "alert('index');");
+  }
+
+  @Test
+  public void GivenEmptyTarget_WhenSyncFiles_ThenCopyAll() throws IOException
+  {
+    // given
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, false, false, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(2));
+    assertThat(result.getSkippedCount(), equalTo(0));
+    assertThat(read(targetDir.resolve("script/index.js")), equalTo("alert('index');"));
+  }
+
+  @Test
+  public void GivenSynchronizedTarget_WhenSyncFiles_ThenSkipUnchanged() throws IOException
+  {
+    // given
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    write(sourceDir.resolve("index.htm"), "<h1>home</h1>");
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, false, false, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(1));
+    assertThat(result.getSkippedCount(), equalTo(1));
+    assertThat(read(targetDir.resolve("index.htm")), equalTo("<h1>home</h1>"));
+  }
+
+  @Test
+  public void GivenSameSizeAndTimeButDifferentContent_WhenSyncFilesWithChecksum_ThenCopy() throws IOException
+  {
+    // given
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    Path targetFile = targetDir.resolve("index.htm");
+    FileTime lastModifiedTime = Files.getLastModifiedTime(targetFile);
+    write(targetFile, "<h1>INDEX</h1>");
+    Files.setLastModifiedTime(targetFile, lastModifiedTime);
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, true, false, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(1));
+    assertThat(read(targetFile), equalTo("<h1>index</h1>"));
+  }
+
+  @Test
+  public void GivenHashCache_WhenSyncFilesWithChecksumAndSameSizeAndTime_ThenCopy() throws IOException
+  {
+    // given
+    files.setHashCache(new HashCache(files, folder.getRoot().toPath().resolve(".cache/digests")));
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    Path targetFile = targetDir.resolve("index.htm");
+    FileTime lastModifiedTime = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+    Files.setLastModifiedTime(targetFile, lastModifiedTime);
+    // target digest is cached for its size and modification time
+    files.digest(targetFile);
+    write(targetFile, "<h1>INDEX</h1>");
+    Files.setLastModifiedTime(targetFile, lastModifiedTime);
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, true, false, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(1));
+    assertThat(read(targetFile), equalTo("<h1>index</h1>"));
+  }
+
+  @Test
+  public void GivenOrphanTargetFiles_WhenSyncFilesWithDelete_ThenRemoveOrphans() throws IOException
+  {
+    // given
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    write(targetDir.resolve("orphan/file.txt"), "orphan");
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, false, true, false);
+
+    // then
+    assertThat(result.getSkippedCount(), equalTo(2));
+    assertThat(result.getDeletedCount(), equalTo(2));
+    assertFalse(Files.exists(targetDir.resolve("orphan")));
+  }
+
+  @Test
+  public void GivenSourceFileReplacedByDirectory_WhenSyncFiles_ThenTargetFileReplaced() throws IOException
+  {
+    // given
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    Files.delete(sourceDir.resolve("index.htm"));
+    write(sourceDir.resolve("index.htm/page.htm"), "<h1>page</h1>");
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, false, true, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(1));
+    assertThat(result.getDeletedCount(), equalTo(1));
+    assertThat(read(targetDir.resolve("index.htm/page.htm")), equalTo("<h1>page</h1>"));
+  }
+
+  @Test
+  public void GivenSourceDirectoryReplacedByFile_WhenSyncFiles_ThenTargetDirectoryReplaced() throws IOException
+  {
+    // given
+    files.syncFiles(sourceDir, targetDir, false, false, false);
+    Files.delete(sourceDir.resolve("script/index.js"));
+    Files.delete(sourceDir.resolve("script"));
+    write(sourceDir.resolve("script"), "script");
+
+    // when
+    SyncResult result = files.syncFiles(sourceDir, targetDir, false, true, false);
+
+    // then
+    assertThat(result.getCopiedCount(), equalTo(1));
+    assertThat(result.getDeletedCount(), equalTo(1));
+    assertThat(read(targetDir.resolve("script")), equalTo("script"));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException
+  {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
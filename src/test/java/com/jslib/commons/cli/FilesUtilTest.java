@@ -1,6 +1,7 @@
 package com.jslib.commons.cli;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertTrue;
@@ -9,6 +10,7 @@ import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,11 +28,15 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -452,6 +458,87 @@ public class FilesUtilTest
     assertTrue(filterArgument.getValue().accept(dir));
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void GivenDirectory_WhenGetFileNames_ThenBasenamesAndDirectoryStreamClosed() throws IOException
+  {
+    // given
+    Path dir = mock(Path.class);
+    Path file = mock(Path.class);
+    Path name = mock(Path.class);
+    when(file.getFileName()).thenReturn(name);
+    when(name.toString()).thenReturn("dialog.htm");
+
+    DirectoryStream<Path> directoryStream = mock(DirectoryStream.class);
+    when(directoryStream.spliterator()).thenReturn(Arrays.asList(file).spliterator());
+    when(provider.newDirectoryStream(eq(dir), any(DirectoryStream.Filter.class))).thenReturn(directoryStream);
+
+    // when
+    List<String> fileNames = files.getFileNames(dir);
+
+    // then
+    assertThat(fileNames, contains("dialog"));
+    verify(directoryStream, times(1)).close();
+  }
+
+  @Test
+  public void GivenMatchingFile_WhenStreamFilesByExtension_ThenFileYielded() throws IOException
+  {
+    // given
+    Path dir = mock(Path.class);
+    Path file = mock(Path.class);
+    mockTree(dir, file, "index.htm", directoryStream(file));
+
+    // when
+    List<Path> foundFiles;
+    try (Stream<Path> stream = files.streamFilesByExtension(dir, ".htm")) {
+      foundFiles = stream.collect(Collectors.toList());
+    }
+
+    // then
+    assertThat(foundFiles, contains(file));
+  }
+
+  @Test
+  public void GivenNoMatchingFile_WhenStreamFilesByExtension_ThenEmptyStream() throws IOException
+  {
+    // given
+    Path dir = mock(Path.class);
+    Path file = mock(Path.class);
+    mockTree(dir, file, "index.htm", directoryStream(file));
+
+    // when
+    long count;
+    try (Stream<Path> stream = files.streamFilesByExtension(dir, ".js")) {
+      count = stream.count();
+    }
+
+    // then
+    assertThat(count, equalTo(0L));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void GivenPartiallyConsumedStream_WhenClose_ThenDirectoryStreamClosed() throws IOException
+  {
+    // given
+    Path dir = mock(Path.class);
+    Path file = mock(Path.class);
+    DirectoryStream<Path> directoryStream = mock(DirectoryStream.class);
+    when(directoryStream.iterator()).thenReturn(Arrays.asList(file).iterator());
+    mockTree(dir, file, "index.htm", directoryStream);
+    Stream<Path> stream = files.streamFilesByExtension(dir, ".htm");
+    // directory is still open since walk stops on first match
+    stream.findFirst();
+    verify(directoryStream, never()).close();
+
+    // when
+    stream.close();
+
+    // then
+    verify(directoryStream, times(1)).close();
+  }
+
   @Test
   public void GivenReaderContent_WhenCopy_ThenWriterHasContent() throws IOException
   {
@@ -469,6 +556,21 @@ public class FilesUtilTest
 
   // --------------------------------------------------------------------------------------------
 
+  /** Mock a directory containing a single file, as seen by tree walker that does not follow links. */
+  private void mockTree(Path dir, Path file, String fileName, DirectoryStream<Path> directoryStream) throws IOException
+  {
+    BasicFileAttributes dirAttributes = mock(BasicFileAttributes.class);
+    when(dirAttributes.isDirectory()).thenReturn(true);
+    BasicFileAttributes fileAttributes = mock(BasicFileAttributes.class);
+
+    when(dir.getFileSystem()).thenReturn(fileSystem);
+    when(file.getFileSystem()).thenReturn(fileSystem);
+    when(file.toString()).thenReturn(fileName);
+    when(provider.readAttributes(dir, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)).thenReturn(dirAttributes);
+    when(provider.readAttributes(file, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)).thenReturn(fileAttributes);
+    when(provider.newDirectoryStream(eq(dir), any())).thenReturn(directoryStream);
+  }
+
   private static DirectoryStream<Path> directoryStream(Path... files)
   {
     return new DirectoryStream<Path>()
@@ -0,0 +1,155 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FilesUtilZipTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path sourceDir;
+  private Path zipFile;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    sourceDir = folder.newFolder("source").toPath();
+    zipFile = folder.getRoot().toPath().resolve("source.zip");
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    for(int i = 0; i < 20; ++i) {
+      write(sourceDir.resolve("dir" + (i % 3)).resolve("file" + i + ".txt"), "content " + i);
+    }
+    Files.createDirectories(sourceDir.resolve("empty"));
+    Files.createDirectories(sourceDir.resolve("media"));
+    Files.write(sourceDir.resolve("media/image.png"), new byte[4096]);
+  }
+
+  @Test
+  public void GivenSourceTree_WhenZipAndUnzip_ThenSameContent() throws IOException
+  {
+    // given
+    Path targetDir = folder.getRoot().toPath().resolve("target");
+
+    // when
+    files.zip(sourceDir, zipFile, 4);
+    files.unzip(zipFile, targetDir, 4);
+
+    // then
+    for(int i = 0; i < 20; ++i) {
+      Path file = targetDir.resolve("dir" + (i % 3)).resolve("file" + i + ".txt");
+      assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), equalTo("content " + i));
+    }
+    assertTrue(Files.isDirectory(targetDir.resolve("empty")));
+    assertThat(Files.readAllBytes(targetDir.resolve("media/image.png")), equalTo(new byte[4096]));
+  }
+
+  @Test
+  public void GivenCompressedFormat_WhenZip_ThenStored() throws IOException
+  {
+    // given
+
+    // when
+    files.zip(sourceDir, zipFile, 2);
+
+    // then
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertThat(zip.getEntry("media/image.png").getMethod(), equalTo(ZipEntry.STORED));
+      assertThat(zip.size(), equalTo(26));
+    }
+  }
+
+  @Test
+  public void GivenEntryOutsideTarget_WhenUnzip_ThenIOException() throws IOException
+  {
+    // given
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+      outputStream.putNextEntry(new ZipEntry("../evil.txt"));
+      outputStream.write('x');
+      outputStream.closeEntry();
+    }
+    Path targetDir = folder.getRoot().toPath().resolve("target");
+
+    // when
+    try {
+      files.unzip(zipFile, targetDir, 2);
+      fail("Entry outside target directory should be rejected.");
+    }
+    catch(IOException e) {
+      // then
+      assertFalse(Files.exists(folder.getRoot().toPath().resolve("evil.txt")));
+    }
+  }
+
+  @Test
+  public void GivenLargeFile_WhenZip_ThenBlocksDeflatedIntoOneEntry() throws IOException
+  {
+    // given
+    StringBuilder content = new StringBuilder();
+    Random random = new Random(1964);
+    while(content.length() < 10 * 1024 * 1024) {
+      content.append("line ").append(random.nextInt(100000)).append('\n');
+    }
+    byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+    Files.write(sourceDir.resolve("large.txt"), bytes);
+    Path targetDir = folder.getRoot().toPath().resolve("target");
+
+    // when
+    files.zip(sourceDir, zipFile, 4);
+    files.unzip(zipFile, targetDir, 4);
+
+    // then
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      ZipEntry entry = zip.getEntry("large.txt");
+      assertThat(entry.getMethod(), equalTo(ZipEntry.DEFLATED));
+      assertTrue(entry.getCompressedSize() < bytes.length / 2);
+    }
+    assertTrue(Arrays.equals(Files.readAllBytes(targetDir.resolve("large.txt")), bytes));
+  }
+
+  @Test
+  public void GivenArchiveInsideSource_WhenZip_ThenArchiveNotPacked() throws IOException
+  {
+    // given
+    Path zipFile = sourceDir.resolve("source.zip");
+    Files.write(zipFile, new byte[1024]);
+
+    // when
+    files.zip(sourceDir, zipFile, 2);
+
+    // then
+    try (ZipFile zip = new ZipFile(zipFile.toFile())) {
+      assertThat(zip.getEntry("source.zip"), equalTo(null));
+      assertThat(zip.size(), equalTo(26));
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
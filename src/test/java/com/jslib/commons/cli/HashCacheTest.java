@@ -0,0 +1,124 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HashCacheTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+  private Path cacheFile;
+  private FileTime modificationTime;
+  private HashCache hashCache;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    file = folder.getRoot().toPath().resolve("index.htm");
+    cacheFile = folder.getRoot().toPath().resolve(".cache/digests");
+    modificationTime = FileTime.fromMillis(System.currentTimeMillis() - 60000);
+    write(file, "<h1>index</h1>", modificationTime);
+  }
+
+  @Test
+  public void GivenSavedCache_WhenDigestUnchangedFile_ThenCachedDigest() throws IOException
+  {
+    // given
+    byte[] digest = newFilesUtil().digest(file);
+    // same size and modification time; only a cached digest can still match original content
+    write(file, "<h1>INDEX</h1>", modificationTime);
+
+    // when
+    byte[] cachedDigest = newFilesUtil().digest(file);
+
+    // then
+    assertThat(cachedDigest, equalTo(digest));
+  }
+
+  @Test
+  public void GivenSavedCache_WhenDigestModifiedFile_ThenNewDigest() throws IOException
+  {
+    // given
+    byte[] digest = newFilesUtil().digest(file);
+    write(file, "<h1>INDEX</h1>", FileTime.fromMillis(modificationTime.toMillis() + 10000));
+
+    // when
+    byte[] newDigest = newFilesUtil().digest(file);
+
+    // then
+    assertThat(newDigest, not(equalTo(digest)));
+  }
+
+  @Test
+  public void GivenRecentlyModifiedFile_WhenDigest_ThenNotServedFromCache() throws IOException
+  {
+    // given
+    FileTime recentTime = FileTime.fromMillis(System.currentTimeMillis());
+    write(file, "<h1>index</h1>", recentTime);
+    byte[] digest = newFilesUtil().digest(file);
+    write(file, "<h1>INDEX</h1>", recentTime);
+
+    // when
+    byte[] newDigest = newFilesUtil().digest(file);
+
+    // then
+    assertThat(newDigest, not(equalTo(digest)));
+  }
+
+  @Test
+  public void GivenHugeRecordLength_WhenLoad_ThenCacheDiscarded() throws IOException
+  {
+    // given
+    Files.createDirectories(cacheFile.getParent());
+    try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(cacheFile))) {
+      outputStream.writeInt(0x4A534843);
+      outputStream.writeInt(1);
+      // var int encoding of Integer.MAX_VALUE
+      outputStream.write(new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07 });
+    }
+    HashCache hashCache = new HashCache(new FilesUtil(FileSystems.getDefault(), new Console()), cacheFile);
+
+    // when
+    hashCache.load();
+
+    // then
+    assertThat(hashCache.size(), equalTo(0));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  /** Create files utility with a freshly loaded hash cache, saving cache of previous instance. */
+  private FilesUtil newFilesUtil() throws IOException
+  {
+    if(hashCache != null) {
+      hashCache.save();
+    }
+    FilesUtil files = new FilesUtil(FileSystems.getDefault(), new Console());
+    hashCache = new HashCache(files, cacheFile);
+    hashCache.load();
+    files.setHashCache(hashCache);
+    return files;
+  }
+
+  private static void write(Path file, String content, FileTime modificationTime) throws IOException
+  {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, modificationTime);
+  }
+}
@@ -0,0 +1,118 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ProgressMeterTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void GivenSourceTree_WhenCopyFilesWithMeter_ThenFinalStats() throws IOException
+  {
+    // given
+    Path sourceDir = folder.newFolder("source").toPath();
+    for(int i = 0; i < 10; ++i) {
+      Files.createDirectories(sourceDir.resolve("dir" + (i % 3)));
+      Files.write(sourceDir.resolve("dir" + (i % 3)).resolve("file" + i), new byte[100]);
+    }
+    FilesUtil files = new FilesUtil(FileSystems.getDefault(), new Console());
+    List<BulkStats> samples = new ArrayList<>();
+
+    // when
+    BulkStats stats = files.copyFiles(sourceDir, folder.getRoot().toPath().resolve("target"), false, 4, CopyStrategy.COPY, new ProgressMeter(samples::add));
+
+    // then
+    assertThat(stats.getFilesCount(), equalTo(10L));
+    assertThat(stats.getBytesCount(), equalTo(1000L));
+    assertTrue(stats.isComplete());
+    assertThat(samples.get(samples.size() - 1), equalTo(stats));
+  }
+
+  @Test
+  public void GivenLongSampleInterval_WhenAdd_ThenOnlyFinalReport()
+  {
+    // given
+    List<BulkStats> samples = new ArrayList<>();
+    ProgressMeter meter = new ProgressMeter(samples::add, 3600000);
+
+    // when
+    for(int i = 0; i < 1000; ++i) {
+      meter.add(1, 10);
+    }
+    meter.finish();
+
+    // then
+    assertThat(samples.size(), equalTo(1));
+    assertThat(samples.get(0).getFilesCount(), equalTo(1000L));
+  }
+
+  @Test
+  public void GivenExpectedTotals_WhenGetStats_ThenRemainingTimeEstimated() throws InterruptedException
+  {
+    // given
+    ProgressMeter meter = new ProgressMeter(null);
+    meter.setExpected(-1, 1000);
+    meter.add(1, 100);
+    Thread.sleep(20);
+
+    // when
+    BulkStats stats = meter.getStats();
+
+    // then
+    assertThat(stats.getRemainingMillis(), greaterThanOrEqualTo(stats.getElapsedMillis() * 8));
+  }
+
+  @Test
+  public void GivenDiscoveredTotals_WhenGetStats_ThenRemainingTimeEstimated() throws InterruptedException
+  {
+    // given
+    ProgressMeter meter = new ProgressMeter(null);
+    meter.discover(10, 1000);
+    meter.add(1, 100);
+    Thread.sleep(20);
+
+    // when
+    BulkStats stats = meter.getStats();
+
+    // then
+    assertThat(stats.getRemainingMillis(), greaterThanOrEqualTo(stats.getElapsedMillis() * 8));
+  }
+
+  @Test
+  public void GivenSourceTree_WhenSequentialCleanAndFindWithMeter_ThenFinalStats() throws IOException
+  {
+    // given
+    Path dir = folder.newFolder("source").toPath();
+    for(int i = 0; i < 10; ++i) {
+      Files.write(dir.resolve("file" + i + ".txt"), "content".getBytes());
+    }
+    FilesUtil files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    // when
+    ProgressMeter findMeter = new ProgressMeter(null);
+    List<Path> foundFiles = files.findFilesByContentPattern(dir, ".txt", "content", findMeter);
+    BulkStats cleanStats = files.cleanDirectory(dir, false, path -> false, new ProgressMeter(null));
+
+    // then
+    assertThat(foundFiles.size(), equalTo(10));
+    assertThat(findMeter.finish().getFilesCount(), equalTo(10L));
+    assertThat(findMeter.finish().getBytesCount(), equalTo(70L));
+    assertThat(cleanStats.getFilesCount(), equalTo(10L));
+    assertThat(cleanStats.getBytesCount(), equalTo(70L));
+  }
+}
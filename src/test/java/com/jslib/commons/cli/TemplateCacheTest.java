@@ -0,0 +1,108 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemplateCacheTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void GivenCachedTemplate_WhenGet_ThenSameTemplateMerged() throws IOException
+  {
+    // given
+    TemplateCache cache = new TemplateCache(10, 1000);
+    File archive = new File("template.zip");
+    Template template = cache.get(archive, 1, "hello.txt.vtl", new StringReader("Hello ${name}!"));
+
+    // when
+    Template cachedTemplate = cache.get(archive, 1, "hello.txt.vtl", new StringReader("not read"));
+
+    // then
+    assertSame(template, cachedTemplate);
+    assertThat(cache.getHitCount(), equalTo(1L));
+    VelocityContext context = new VelocityContext();
+    context.put("name", "World");
+    StringWriter writer = new StringWriter();
+    cachedTemplate.merge(context, writer);
+    assertThat(writer.toString(), equalTo("Hello World!"));
+  }
+
+  @Test
+  public void GivenBounds_WhenGet_ThenLeastRecentlyUsedEvicted() throws IOException
+  {
+    // given
+    TemplateCache cache = new TemplateCache(2, 1000);
+    File archive = new File("template.zip");
+    cache.get(archive, 1, "a", new StringReader("a"));
+    cache.get(archive, 1, "b", new StringReader("b"));
+    cache.get(archive, 1, "a", new StringReader("a"));
+
+    // when
+    cache.get(archive, 1, "c", new StringReader("c"));
+    cache.get(archive, 1, "a", new StringReader("a"));
+    cache.get(archive, 1, "b", new StringReader("b"));
+
+    // then
+    assertThat(cache.size(), equalTo(2));
+    assertThat(cache.getHitCount(), equalTo(2L));
+    assertThat(cache.getMissCount(), equalTo(4L));
+  }
+
+  @Test
+  public void GivenArchiveUpdate_WhenExec_ThenTemplateRecompiled() throws IOException
+  {
+    // given
+    File archive = folder.getRoot().toPath().resolve("template.zip").toFile();
+    File targetDir = folder.newFolder("target");
+    TemplateCache cache = new TemplateCache(10, 1000);
+    TemplateProcessor processor = new TemplateProcessor();
+    processor.setTargetDir(targetDir);
+    processor.setTemplateCache(cache);
+    Map<String, String> variables = new HashMap<>();
+    variables.put("name", "World");
+
+    // when
+    zip(archive, "Hello ${name}!");
+    processor.exec(archive, variables);
+    processor.exec(archive, variables);
+    zip(archive, "Bye ${name}!");
+    archive.setLastModified(archive.lastModified() + 2000);
+    processor.exec(archive, variables);
+
+    // then
+    assertThat(cache.getHitCount(), equalTo(1L));
+    assertThat(cache.getMissCount(), equalTo(2L));
+    assertThat(new String(Files.readAllBytes(new File(targetDir, "hello.txt").toPath()), StandardCharsets.UTF_8), equalTo("Bye World!"));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void zip(File archive, String content) throws IOException
+  {
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+      outputStream.putNextEntry(new ZipEntry("hello.txt.vtl"));
+      outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+      outputStream.closeEntry();
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jslib.commons.cli.IoStats.Operation;
+
+public class TemplateManifestTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private CountingFileSystem fileSystem;
+  private FilesUtil files;
+  private Path templateFile;
+  private Path manifestFile;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    fileSystem = new CountingFileSystem(FileSystems.getDefault());
+    files = new FilesUtil(fileSystem, new Console());
+    templateFile = fileSystem.getPath(folder.getRoot().getPath(), "compo.zip");
+    manifestFile = fileSystem.getPath(folder.getRoot().getPath(), "manifests", "compo.manifest");
+    zip(templateFile, "${name}/", "${name}/${name}~{script}.js.vtl", "${name}/${page}.htm.vtl", "${name}/logo.png");
+  }
+
+  @Test
+  public void GivenArchive_WhenLoad_ThenEntriesParsed() throws IOException
+  {
+    // given
+
+    // when
+    TemplateManifest manifest = TemplateManifest.load(files, templateFile, manifestFile);
+
+    // then
+    List<TemplateManifest.Entry> entries = manifest.getEntries();
+    assertThat(entries.size(), equalTo(4));
+    assertThat(entries.get(0).entryName, equalTo("${name}/"));
+    assertThat(entries.get(1).entryName, equalTo("${name}/${name}.js.vtl"));
+    assertThat(entries.get(1).flag, equalTo("script"));
+    assertThat(entries.get(2).variables.toString(), equalTo("[name, page]"));
+    assertThat(entries.get(3).flag, equalTo(null));
+    assertTrue(Files.exists(manifestFile));
+    assertFalse(Files.exists(fileSystem.getPath(folder.getRoot().getPath(), "compo.zip.manifest")));
+  }
+
+  @Test
+  public void GivenSavedManifest_WhenLoad_ThenArchiveNotRead() throws IOException
+  {
+    // given
+    Files.setLastModifiedTime(templateFile, FileTime.fromMillis(System.currentTimeMillis() - 10000));
+    TemplateManifest.load(files, templateFile, manifestFile);
+    long openCount = fileSystem.getStats().getCount(Operation.OPEN);
+
+    // when
+    TemplateManifest manifest = TemplateManifest.load(files, templateFile, manifestFile);
+
+    // then
+    assertThat(manifest.getEntries().size(), equalTo(4));
+    assertThat(fileSystem.getStats().getCount(Operation.OPEN) - openCount, equalTo(1L));
+  }
+
+  @Test
+  public void GivenChangedArchive_WhenLoad_ThenManifestRebuilt() throws IOException
+  {
+    // given
+    TemplateManifest.load(files, templateFile, manifestFile);
+    zip(templateFile, "index.htm.vtl");
+    Files.setLastModifiedTime(templateFile, FileTime.fromMillis(System.currentTimeMillis() + 10000));
+
+    // when
+    TemplateManifest manifest = TemplateManifest.load(files, templateFile, manifestFile);
+
+    // then
+    assertThat(manifest.getEntries().size(), equalTo(1));
+    assertThat(manifest.getEntries().get(0).entryName, equalTo("index.htm.vtl"));
+  }
+
+  @Test
+  public void GivenMissingVariables_WhenExec_ThenIOExceptionBeforeOutput() throws IOException
+  {
+    // given
+    File targetDir = folder.newFolder("target");
+    TemplateProcessor processor = new TemplateProcessor();
+    processor.setTargetDir(targetDir);
+    Map<String, String> variables = new HashMap<>();
+    variables.put("name", "compo");
+
+    // when
+    try {
+      processor.exec(templateFile.toFile(), variables, 2);
+      fail("Missing variables should be rejected.");
+    }
+    catch(IOException e) {
+      // then
+      assertThat(e.getMessage(), equalTo("Missing template variables [page]."));
+      assertThat(targetDir.list().length, equalTo(0));
+    }
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void zip(Path zipFile, String... names) throws IOException
+  {
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(zipFile))) {
+      for(String name : names) {
+        outputStream.putNextEntry(new ZipEntry(name));
+        if(!name.endsWith("/")) {
+          outputStream.write(name.getBytes(StandardCharsets.UTF_8));
+        }
+        outputStream.closeEntry();
+      }
+    }
+  }
+}
@@ -0,0 +1,342 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.velocity.exception.ParseErrorException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TemplateProcessorTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File templateFile;
+  private Map<String, String> variables;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    templateFile = new File(folder.getRoot(), "template.zip");
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(templateFile.toPath()))) {
+      put(outputStream, "${name}/", null);
+      put(outputStream, "${name}/res/", null);
+      for(int i = 0; i < 20; ++i) {
+        put(outputStream, "${name}/res/file" + i + ".txt.vtl", "${name} " + i);
+      }
+      put(outputStream, "${name}/static.bin", "static ${name}");
+      put(outputStream, "${name}/script~{script}.js.vtl", "script ${name}");
+    }
+
+    variables = new HashMap<>();
+    variables.put("name", "compo");
+  }
+
+  @Test
+  public void GivenTemplate_WhenParallelExec_ThenSameOutputAsStreaming() throws IOException
+  {
+    // given
+    File streamingDir = folder.newFolder("streaming");
+    File parallelDir = folder.newFolder("parallel");
+
+    // when
+    processor(streamingDir).exec(templateFile, variables);
+    TemplateProcessor processor = processor(parallelDir);
+    processor.exec(templateFile, variables, 4);
+
+    // then
+    for(int i = 0; i < 20; ++i) {
+      String path = "compo/res/file" + i + ".txt";
+      assertThat(read(new File(parallelDir, path)), equalTo("compo " + i));
+      assertThat(read(new File(parallelDir, path)), equalTo(read(new File(streamingDir, path))));
+    }
+    assertThat(read(new File(parallelDir, "compo/static.bin")), equalTo("static ${name}"));
+    assertFalse(new File(parallelDir, "compo/script.js").exists());
+    assertThat(readExcluded(processor, "script.js"), equalTo("script compo"));
+  }
+
+  @Test
+  public void GivenFlagSet_WhenParallelExec_ThenFlaggedEntryWritten() throws IOException
+  {
+    // given
+    File targetDir = folder.newFolder("target");
+    variables.put("script", "true");
+
+    // when
+    processor(targetDir).exec(templateFile, variables, 2);
+
+    // then
+    assertThat(read(new File(targetDir, "compo/script.js")), equalTo("script compo"));
+  }
+
+  @Test
+  public void GivenExistingDirectory_WhenParallelExec_ThenIOExceptionBeforeRendering() throws IOException
+  {
+    // given
+    File targetDir = folder.newFolder("target");
+    assertTrue(new File(targetDir, "compo").mkdirs());
+
+    // when
+    try {
+      processor(targetDir).exec(templateFile, variables, 2);
+      fail("Existing directory should be rejected.");
+    }
+    catch(IOException e) {
+      // then
+      assertFalse(new File(targetDir, "compo/static.bin").exists());
+    }
+  }
+
+  @Test
+  public void GivenInvalidExcludedTemplate_WhenExec_ThenFailsOnlyOnRead() throws IOException
+  {
+    // given
+    File templateFile = new File(folder.getRoot(), "invalid.zip");
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(templateFile.toPath()))) {
+      put(outputStream, "broken~{broken}.txt.vtl", "#if(");
+    }
+    TemplateProcessor processor = processor(folder.newFolder("target"));
+
+    // when
+    processor.exec(templateFile, variables, 2);
+    Reader reader = processor.getExcludedFileReader("broken.txt");
+
+    // then
+    try {
+      reader.read();
+      fail("Invalid template should fail on read.");
+    }
+    catch(ParseErrorException e) {
+      assertThat(e.getTemplateName(), equalTo("broken~{broken}.txt.vtl"));
+    }
+  }
+
+  @Test
+  public void GivenExcludedFilesCache_WhenTemplateChanged_ThenCachedContent() throws IOException
+  {
+    // given
+    TemplateProcessor processor = processor(folder.newFolder("target"));
+    processor.setExcludedFilesCacheSize(1000);
+    processor.exec(templateFile, variables);
+    readExcluded(processor, "script.js");
+
+    // when
+    assertTrue(templateFile.setLastModified(templateFile.lastModified() + 2000));
+    String content = readExcluded(processor, "script.js");
+
+    // then
+    assertThat(content, equalTo("script compo"));
+  }
+
+  @Test(expected = IOException.class)
+  public void GivenNoExcludedFilesCache_WhenTemplateChanged_ThenIOException() throws IOException
+  {
+    // given
+    TemplateProcessor processor = processor(folder.newFolder("target"));
+    processor.exec(templateFile, variables);
+
+    // when
+    assertTrue(templateFile.setLastModified(templateFile.lastModified() + 2000));
+    readExcluded(processor, "script.js");
+
+    // then
+  }
+
+  @Test
+  public void GivenTargets_WhenExecBatch_ThenPerTargetResults() throws IOException
+  {
+    // given
+    List<TemplateProcessor.BatchTarget> targets = new ArrayList<>();
+    for(int i = 0; i < 5; ++i) {
+      Map<String, String> targetVariables = new HashMap<>();
+      targetVariables.put("name", "compo" + i);
+      targets.add(new TemplateProcessor.BatchTarget(targetVariables, folder.newFolder("target" + i)));
+    }
+    targets.add(new TemplateProcessor.BatchTarget(new HashMap<>(), folder.newFolder("invalid")));
+
+    // when
+    List<TemplateProcessor.BatchResult> results = processor(null).execBatch(templateFile, targets, 3);
+
+    // then
+    assertThat(results.size(), equalTo(6));
+    for(int i = 0; i < 5; ++i) {
+      File targetDir = targets.get(i).getTargetDir();
+      assertTrue(results.get(i).isSuccess());
+      assertThat(read(new File(targetDir, "compo" + i + "/res/file7.txt")), equalTo("compo" + i + " 7"));
+      assertThat(read(new File(targetDir, "compo" + i + "/static.bin")), equalTo("static ${name}"));
+      try (BufferedReader reader = new BufferedReader(results.get(i).getExcludedFileReader("script.js"))) {
+        assertThat(reader.readLine(), equalTo("script compo" + i));
+      }
+    }
+    assertFalse(results.get(5).isSuccess());
+    assertThat(results.get(5).getError().getMessage(), equalTo("Missing template variables [name]."));
+    assertThat(targets.get(5).getTargetDir().list().length, equalTo(0));
+  }
+
+  @Test
+  public void GivenVariableWithTemplateExtension_WhenExec_ThenClassifiedAfterInjection() throws IOException
+  {
+    // given
+    File templateFile = new File(folder.getRoot(), "injected.zip");
+    try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(templateFile.toPath()))) {
+      put(outputStream, "${page}", "page ${name}");
+    }
+    variables.put("page", "index.htm.vtl");
+    File streamingDir = folder.newFolder("streaming");
+    File parallelDir = folder.newFolder("parallel");
+
+    // when
+    processor(streamingDir).exec(templateFile, variables);
+    processor(parallelDir).exec(templateFile, variables, 2);
+
+    // then
+    assertThat(read(new File(streamingDir, "index.htm")), equalTo("page compo"));
+    assertThat(read(new File(parallelDir, "index.htm")), equalTo("page compo"));
+  }
+
+  @Test
+  public void GivenConsole_WhenVerboseExecBatch_ThenTargetsPrintOnParentConsole() throws IOException
+  {
+    // given
+    List<TemplateProcessor.BatchTarget> targets = new ArrayList<>();
+    for(int i = 0; i < 3; ++i) {
+      Map<String, String> targetVariables = new HashMap<>();
+      targetVariables.put("name", "compo" + i);
+      targets.add(new TemplateProcessor.BatchTarget(targetVariables, folder.newFolder("target" + i)));
+    }
+    RecordingConsole console = new RecordingConsole();
+    TemplateProcessor processor = new TemplateProcessor();
+    processor.setConsole(console);
+    processor.setVerbose(true);
+
+    // when
+    processor.execBatch(templateFile, targets, 3);
+
+    // then
+    // every target creates 2 directories and 21 files; flagged script is excluded
+    assertThat(console.messages.size(), equalTo(3 * 23));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static String readExcluded(TemplateProcessor processor, String fileName) throws IOException
+  {
+    try (BufferedReader reader = new BufferedReader(processor.getExcludedFileReader(fileName))) {
+      return reader.readLine();
+    }
+  }
+
+  private static TemplateProcessor processor(File targetDir)
+  {
+    TemplateProcessor processor = new TemplateProcessor();
+    processor.setTargetDir(targetDir);
+    return processor;
+  }
+
+  private static void put(ZipOutputStream outputStream, String name, String content) throws IOException
+  {
+    outputStream.putNextEntry(new ZipEntry(name));
+    if(content != null) {
+      outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    outputStream.closeEntry();
+  }
+
+  private static String read(File file) throws IOException
+  {
+    return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+  }
+
+  private static class RecordingConsole implements IConsole
+  {
+    final List<String> messages = new ArrayList<>();
+
+    @Override
+    public void print(String format, Object... args)
+    {
+      messages.add(String.format(format, args));
+    }
+
+    @Override
+    public void print(char c)
+    {
+    }
+
+    @Override
+    public void print(Object object)
+    {
+      messages.add(object.toString());
+    }
+
+    @Override
+    public void info(String format, Object... args)
+    {
+    }
+
+    @Override
+    public void info(Object object)
+    {
+    }
+
+    @Override
+    public void warning(String format, Object... args)
+    {
+    }
+
+    @Override
+    public void warning(Object object)
+    {
+    }
+
+    @Override
+    public void error(String format, Object... args)
+    {
+    }
+
+    @Override
+    public void error(Object object)
+    {
+    }
+
+    @Override
+    public String input(String message, String... defaultValue)
+    {
+      return null;
+    }
+
+    @Override
+    public boolean confirm(String message, String positiveAnswer)
+    {
+      return false;
+    }
+
+    @Override
+    public void crlf()
+    {
+    }
+
+    @Override
+    public void stackTrace(Throwable t)
+    {
+    }
+  }
+}
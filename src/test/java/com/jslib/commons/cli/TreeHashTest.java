@@ -0,0 +1,93 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TreeHashTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("root").toPath();
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    write(rootDir.resolve("index.htm"), "<h1>index</h1>");
+    write(rootDir.resolve("lib/util.js"), "var util = {};");
+    write(rootDir.resolve("lib/dom.js"), "var dom = {};");
+    write(rootDir.resolve("vendor/util.js"), "var util = {};");
+    write(rootDir.resolve("vendor/dom.js"), "var dom = {};");
+  }
+
+  @Test
+  public void GivenTree_WhenHashTree_ThenFileHashesMatchDigest() throws IOException
+  {
+    // given
+
+    // when
+    TreeHash hash = files.hashTree(rootDir, 4);
+
+    // then
+    assertThat(hash.getFilePaths(), contains("index.htm", "lib/dom.js", "lib/util.js", "vendor/dom.js", "vendor/util.js"));
+    assertThat(hash.getFileHash("lib/util.js"), equalTo(files.digest(rootDir.resolve("lib/util.js"))));
+  }
+
+  @Test
+  public void GivenSameContentDirectories_WhenHashTree_ThenSameDirectoryHashAndDuplicates() throws IOException
+  {
+    // given
+
+    // when
+    TreeHash hash = files.hashTree(rootDir, 4);
+
+    // then
+    assertThat(hash.getDirectoryHash("lib"), equalTo(hash.getDirectoryHash("vendor")));
+    List<List<String>> duplicates = hash.getDuplicates();
+    assertThat(duplicates, hasSize(2));
+    assertThat(duplicates.get(0), contains("lib/dom.js", "vendor/dom.js"));
+    assertThat(duplicates.get(1), contains("lib/util.js", "vendor/util.js"));
+  }
+
+  @Test
+  public void GivenChangedFile_WhenHashTree_ThenRootHashChanged() throws IOException
+  {
+    // given
+    byte[] rootHash = files.hashTree(rootDir, 2).getRootHash();
+    write(rootDir.resolve("vendor/dom.js"), "var dom = [];");
+
+    // when
+    TreeHash hash = files.hashTree(rootDir, 2);
+
+    // then
+    assertThat(hash.getRootHash(), not(equalTo(rootHash)));
+    assertThat(hash.getDirectoryHash("lib"), not(equalTo(hash.getDirectoryHash("vendor"))));
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,138 @@
+package com.jslib.commons.cli;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TreeSnapshotTest
+{
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path rootDir;
+  private FilesUtil files;
+
+  @Before
+  public void beforeTest() throws IOException
+  {
+    rootDir = folder.newFolder("root").toPath();
+    files = new FilesUtil(FileSystems.getDefault(), new Console());
+
+    write(rootDir.resolve("index.htm"), "<h1>index</h1>");
+    write(rootDir.resolve("script/index.js"), "alert('index');");
+    write(rootDir.resolve("script/lib/util.js"), "var util = {};");
+  }
+
+  @Test
+  public void GivenTree_WhenCreateSnapshot_ThenSortedRelativePaths() throws IOException
+  {
+    // given
+
+    // when
+    TreeSnapshot snapshot = files.createSnapshot(rootDir, false);
+
+    // then
+    assertThat(snapshot.size(), equalTo(3));
+    assertThat(snapshot.getPath(0), equalTo("index.htm"));
+    assertThat(snapshot.getPath(1), equalTo("script/index.js"));
+    assertThat(snapshot.getPath(2), equalTo("script/lib/util.js"));
+    assertThat(snapshot.getSize(0), equalTo(14L));
+  }
+
+  @Test
+  public void GivenChangedTree_WhenDiff_ThenAddedRemovedAndModified() throws IOException
+  {
+    // given
+    TreeSnapshot older = files.createSnapshot(rootDir, true);
+    Files.delete(rootDir.resolve("script/lib/util.js"));
+    write(rootDir.resolve("script/lib/dom.js"), "var dom = {};");
+    write(rootDir.resolve("index.htm"), "<h1>home</h1>");
+    TreeSnapshot newer = files.createSnapshot(rootDir, true);
+
+    // when
+    TreeDiff diff = older.diff(newer);
+
+    // then
+    assertThat(diff.getAddedPaths(), contains("script/lib/dom.js"));
+    assertThat(diff.getRemovedPaths(), contains("script/lib/util.js"));
+    assertThat(diff.getModifiedPaths(), contains("index.htm"));
+  }
+
+  @Test
+  public void GivenTouchedFile_WhenDiffWithDigests_ThenNotModified() throws IOException
+  {
+    // given
+    TreeSnapshot older = files.createSnapshot(rootDir, true);
+    Path file = rootDir.resolve("index.htm");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10000));
+    TreeSnapshot newer = files.createSnapshot(rootDir, true);
+
+    // when
+    TreeDiff diff = older.diff(newer);
+
+    // then
+    assertTrue(diff.isEmpty());
+  }
+
+  @Test
+  public void GivenSavedSnapshot_WhenLoad_ThenSameEntries() throws IOException
+  {
+    // given
+    TreeSnapshot snapshot = files.createSnapshot(rootDir, true);
+    Path snapshotFile = folder.getRoot().toPath().resolve("snapshot/root.snapshot");
+    files.saveSnapshot(snapshot, snapshotFile);
+
+    // when
+    TreeSnapshot loadedSnapshot = files.loadSnapshot(snapshotFile);
+
+    // then
+    assertThat(loadedSnapshot.size(), equalTo(snapshot.size()));
+    for(int i = 0; i < snapshot.size(); ++i) {
+      assertThat(loadedSnapshot.getPath(i), equalTo(snapshot.getPath(i)));
+      assertThat(loadedSnapshot.getSize(i), equalTo(snapshot.getSize(i)));
+      assertThat(loadedSnapshot.getModificationTime(i), equalTo(snapshot.getModificationTime(i)));
+      assertThat(loadedSnapshot.getDigest(i), equalTo(snapshot.getDigest(i)));
+    }
+    assertTrue(snapshot.diff(loadedSnapshot).isEmpty());
+  }
+
+  @Test(expected = IOException.class)
+  public void GivenHugeEntriesCount_WhenLoad_ThenIOException() throws IOException
+  {
+    // given
+    Path snapshotFile = folder.getRoot().toPath().resolve("corrupt.snapshot");
+    try (DataOutputStream outputStream = new DataOutputStream(Files.newOutputStream(snapshotFile))) {
+      outputStream.writeInt(0x4A535453);
+      outputStream.writeInt(1);
+      // var int encoding of Integer.MAX_VALUE entries count followed by 32 bytes digest length
+      outputStream.write(new byte[] { (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 32 });
+    }
+
+    // when
+    files.loadSnapshot(snapshotFile);
+
+    // then
+  }
+
+  // --------------------------------------------------------------------------------------------
+
+  private static void write(Path file, String content) throws IOException
+  {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}